@@ -0,0 +1,299 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Microbenchmarks for the Kelas DSL and the grading pipeline.
+ * <p>
+ * Usage (from the repository root, which holds the lab2 samples):
+ * java -cp out cs2030s.grader.KelasBenchmark [--out file.json]
+ * [--filter regex] [--sizes 10,100,1000,10000] [--quick]
+ * <p>
+ * Compile together with the grader sources:
+ * javac -d out src/cs2030s/grader/*.java bench/cs2030s/grader/*.java
+ * <p>
+ * Each benchmark is warmed up, then timed over several fixed-length
+ * iterations; the score is the average time per operation.  Results are
+ * printed as a table and, with --out, written as JSON in the same shape
+ * as JMH's JSON output (benchmark, params, mode, primaryMetric with
+ * score, scoreError, scoreUnit and rawData), so existing JMH tooling can
+ * track regressions.
+ */
+public class KelasBenchmark {
+    // Results are folded into this field so the JIT cannot drop the work.
+    static volatile long sink;
+
+    private final Pattern filter;
+    private final int warmups;
+    private final int iterations;
+    private final long iterationNanos;
+    private final List<Map<String, Object>> results = new ArrayList<>();
+
+    KelasBenchmark(Pattern filter, boolean quick) {
+        this.filter = filter;
+        this.warmups = quick ? 1 : 3;
+        this.iterations = quick ? 3 : 5;
+        this.iterationNanos = quick ? 100_000_000L : 500_000_000L;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path out = null;
+        Pattern filter = Pattern.compile(".*");
+        int[] sizes = {10, 100, 1000, 10000};
+        boolean quick = false;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) {
+                out = Path.of(args[++i]);
+            } else if (args[i].equals("--filter") && i + 1 < args.length) {
+                filter = Pattern.compile(args[++i]);
+            } else if (args[i].equals("--sizes") && i + 1 < args.length) {
+                sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (args[i].equals("--quick")) {
+                quick = true;
+            } else {
+                System.err.println("Usage: java cs2030s.grader.KelasBenchmark [--out file.json]"
+                        + " [--filter regex] [--sizes 10,100,...] [--quick]");
+                System.exit(2);
+            }
+        }
+
+        KelasBenchmark bench = new KelasBenchmark(filter, quick);
+        bench.queries();
+        for (int size : sizes) {
+            bench.hierarchy(size);
+        }
+        bench.grading(Path.of("lab2"));
+
+        if (out != null) {
+            Files.writeString(out, bench.toJson());
+            System.out.println("Results written to " + out);
+        }
+    }
+
+    /**
+     * Kelas construction and member query chains on a lab2 class.
+     */
+    void queries() throws Exception {
+        SubmissionClassLoader loader = load(Path.of("lab2", "sample"));
+        withContext(loader, () -> {
+            Class<?> cruise = loader.loadClass("Cruise");
+            Kelas k = new Kelas(cruise);
+            Map<String, String> params = Map.of("class", "Cruise");
+
+            run("kelas.construct.class", params, () -> new Kelas(cruise).hashCode());
+            run("kelas.construct.name", params, () -> new Kelas("Cruise").hashCode());
+            run("fields.privateFinal.count", params,
+                    () -> k.getFields().arePrivate(true).areFinal(true).count());
+            run("fields.all.private", params,
+                    () -> k.getFields().arePrivate(true).count() == k.getFields().count() ? 1 : 0);
+            run("fields.haveType.countEquals", params,
+                    () -> k.getFields().arePrivate(true).haveType(int.class).countEquals(3) ? 1 : 0);
+            run("methods.public.haveName.present", params,
+                    () -> k.getMethods().arePublic(true).haveName("getServiceTime").arePresent() ? 1 : 0);
+            run("constructors.excludeDefault.count", params,
+                    () -> k.getConstructors().excludeDefault().count());
+            return null;
+        });
+    }
+
+    /**
+     * Type index construction and subclass queries over a synthetic
+     * hierarchy of the given number of classes.
+     */
+    void hierarchy(int size) throws Exception {
+        if (!selected("hierarchy.typeIndex.build", "hierarchy.getSubclasses",
+                    "hierarchy.getDescendants", "hierarchy.extendsTransitively")) {
+            return;
+        }
+        SubmissionClassLoader loader = load(synthetic(size));
+        withContext(loader, () -> {
+            List<Class<?>> classes = KelasUtils.getClasses();
+            Kelas root = new Kelas("S0");
+            Kelas leaf = new Kelas("S" + (size - 1));
+            Map<String, String> params = Map.of("classes", String.valueOf(size));
+
+            run("hierarchy.typeIndex.build", params, () -> new TypeIndex(classes).getClasses().size());
+            run("hierarchy.getSubclasses", params, () -> root.getSubclasses().size());
+            run("hierarchy.getDescendants", params, () -> root.getDescendants().size());
+            run("hierarchy.extendsTransitively", params, () -> leaf.extendsTransitively(root) ? 1 : 0);
+            return null;
+        });
+    }
+
+    /**
+     * End-to-end grading of the lab's sample submissions, with its
+     * CheckDesign.java and with its rule spec.
+     */
+    void grading(Path lab) throws Exception {
+        List<Path> submissions = GradingEngine.listSubmissions(lab);
+        Map<String, String> params = Map.of("lab", lab.toString(),
+                "submissions", String.valueOf(submissions.size()));
+        OutputCapture.install();
+
+        GradingEngine checker = new GradingEngine(lab);
+        run("grading.checkDesign", params, () -> gradeAll(checker, submissions));
+
+        Path spec = lab.resolve("rules.kelas");
+        if (Files.exists(spec)) {
+            GradingEngine rules = new GradingEngine(lab.toString(), RuleSet.parse(spec), null);
+            run("grading.rules", params, () -> gradeAll(rules, submissions));
+        }
+    }
+
+    private static long gradeAll(GradingEngine engine, List<Path> submissions) throws IOException {
+        long n = 0;
+        for (Path submission : submissions) {
+            n += engine.grade(submission).getOutput().length();
+        }
+        return n;
+    }
+
+    /**
+     * Write the sources of a hierarchy of size classes, each extending
+     * the class at (i - 1) / 4, so the tree has fan-out 4.
+     */
+    private static Path synthetic(int size) throws IOException {
+        Path dir = Files.createTempDirectory("kelas-bench-" + size);
+        dir.toFile().deleteOnExit();
+        StringBuilder sb = new StringBuilder("class S0 {\n    private final int f0 = 0;\n}\n");
+        for (int i = 1; i < size; i++) {
+            sb.append("class S").append(i).append(" extends S").append((i - 1) / 4)
+                .append(" {\n    private final int f").append(i).append(" = ").append(i).append(";\n}\n");
+        }
+        Path source = dir.resolve("Synthetic.java");
+        Files.writeString(source, sb);
+        source.toFile().deleteOnExit();
+        return dir;
+    }
+
+    private static SubmissionClassLoader load(Path submission) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.list(submission)) {
+            files.filter(p -> p.toString().endsWith(".java")).forEach(sources::add);
+        }
+        SubmissionCompiler.Result compiled = new SubmissionCompiler().compile(sources);
+        if (!compiled.succeeded()) {
+            throw new IllegalStateException(compiled.getErrors());
+        }
+        return new SubmissionClassLoader(compiled.getClasses(), KelasBenchmark.class.getClassLoader());
+    }
+
+    private static <T> T withContext(ClassLoader loader, Callable<T> body) throws Exception {
+        Thread current = Thread.currentThread();
+        ClassLoader previous = current.getContextClassLoader();
+        current.setContextClassLoader(loader);
+        try {
+            return body.call();
+        } finally {
+            current.setContextClassLoader(previous);
+        }
+    }
+
+    private boolean selected(String... names) {
+        return Arrays.stream(names).anyMatch(name -> filter.matcher(name).find());
+    }
+
+    /**
+     * Benchmark one operation and record its result.
+     */
+    void run(String name, Map<String, String> params, Callable<?> op) throws Exception {
+        if (!filter.matcher(name).find()) {
+            return;
+        }
+        for (int i = 0; i < warmups; i++) {
+            measure(op);
+        }
+        double[] raw = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            raw[i] = measure(op);
+        }
+
+        double mean = Arrays.stream(raw).average().orElse(0);
+        double variance = Arrays.stream(raw).map(x -> (x - mean) * (x - mean)).sum()
+            / Math.max(1, raw.length - 1);
+        // Half-width of a ~99.9% confidence interval, as JMH reports.
+        double error = 3.29 * Math.sqrt(variance / raw.length);
+
+        System.out.printf("%-40s %-24s %14.1f +- %10.1f ns/op%n", name, params, mean, error);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("benchmark", "cs2030s.grader.KelasBenchmark." + name);
+        result.put("mode", "avgt");
+        result.put("params", params);
+        Map<String, Object> metric = new LinkedHashMap<>();
+        metric.put("score", mean);
+        metric.put("scoreError", error);
+        metric.put("scoreUnit", "ns/op");
+        // JMH nests raw data per fork; there is a single fork here.
+        metric.put("rawData", List.of(raw));
+        result.put("primaryMetric", metric);
+        results.add(result);
+    }
+
+    /**
+     * Run op repeatedly for one iteration.
+     * @return Average nanoseconds per call
+     */
+    private double measure(Callable<?> op) throws Exception {
+        long ops = 0;
+        long acc = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            Object r = op.call();
+            acc += r == null ? 0 : r.hashCode();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        sink = acc;
+        return (double) elapsed / ops;
+    }
+
+    String toJson() {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            sb.append("    ").append(json(results.get(i))).append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String json(Object o) {
+        if (o instanceof Map) {
+            StringBuilder sb = new StringBuilder("{");
+            for (Map.Entry<String, Object> e : ((Map<String, Object>) o).entrySet()) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(ResultSink.JsonLines.quote(e.getKey())).append(": ").append(json(e.getValue()));
+            }
+            return sb.append('}').toString();
+        } else if (o instanceof List) {
+            StringBuilder sb = new StringBuilder("[");
+            for (Object e : (List<?>) o) {
+                sb.append(sb.length() > 1 ? ", " : "").append(json(e));
+            }
+            return sb.append(']').toString();
+        } else if (o instanceof double[]) {
+            StringBuilder sb = new StringBuilder("[");
+            for (double d : (double[]) o) {
+                sb.append(sb.length() > 1 ? ", " : "").append(d);
+            }
+            return sb.append(']').toString();
+        } else if (o instanceof Number) {
+            return o.toString();
+        }
+        return ResultSink.JsonLines.quote(String.valueOf(o));
+    }
+}
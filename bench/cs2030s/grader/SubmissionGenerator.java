@@ -0,0 +1,222 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic submissions for load-testing the grader.
+ * <p>
+ * Usage (from the repository root):
+ * java -cp out cs2030s.grader.SubmissionGenerator &lt;sample-folder&gt;
+ * &lt;output-lab-folder&gt; &lt;count&gt; [--seed n]
+ * <p>
+ * Each submission is a copy of the sample's .java files with zero to
+ * three random mutations: a renamed field, a changed field modifier, an
+ * extra class, an overloaded method or a removed extends/implements
+ * clause.  Every mutated submission is compiled in memory and a mutation
+ * that breaks compilation is discarded, so all generated submissions
+ * compile.  The lab's CheckDesign.java and rules.kelas, if any, are
+ * copied to the output folder so it can be graded directly.
+ */
+public class SubmissionGenerator {
+    // Member declarations, at one level of indentation as in the samples.
+    private static final Pattern FIELD = Pattern.compile(
+            "(?m)^( {4}|\\t)(?!return\\b)((?:public|protected|private)\\s+)?((?:static\\s+|final\\s+)*)"
+            + "([\\w<>\\[\\], ]+?)\\s+(\\w+)\\s*(=[^;]*)?;");
+    private static final Pattern METHOD = Pattern.compile(
+            "(?m)^\\s+(?:public|protected|private)?\\s*[\\w<>\\[\\]]+\\s+(\\w+)\\s*\\(");
+    private static final Pattern SUPERTYPE = Pattern.compile(
+            "\\s+(?:extends|implements)\\s+\\w+(?=\\s*\\{)");
+    private static final String[] ACCESS = {"private ", "protected ", "public ", ""};
+
+    private final Map<String, String> sample;
+    private final Random random;
+    private final SubmissionCompiler compiler = new SubmissionCompiler();
+    private int extraClasses;
+
+    SubmissionGenerator(Map<String, String> sample, long seed) {
+        this.sample = sample;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && !(args.length == 5 && args[3].equals("--seed"))) {
+            System.err.println("Usage: java cs2030s.grader.SubmissionGenerator"
+                    + " <sample-folder> <output-lab-folder> <count> [--seed n]");
+            System.exit(2);
+        }
+        Path sampleDir = Path.of(args[0]);
+        Path out = Path.of(args[1]);
+        int count = Integer.parseInt(args[2]);
+        long seed = args.length == 5 ? Long.parseLong(args[4]) : 2030L;
+
+        SubmissionGenerator generator = new SubmissionGenerator(readSources(sampleDir), seed);
+        Files.createDirectories(out);
+        Path lab = sampleDir.toAbsolutePath().getParent();
+        for (String file : List.of(GradingEngine.CHECKER + ".java", "rules.kelas")) {
+            if (Files.exists(lab.resolve(file))) {
+                Files.copy(lab.resolve(file), out.resolve(file),
+                        java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        String format = "gen%0" + String.valueOf(count).length() + "d";
+        for (int i = 0; i < count; i++) {
+            Path dir = out.resolve(String.format(format, i));
+            Files.createDirectories(dir);
+            for (Map.Entry<String, String> e : generator.next().entrySet()) {
+                Files.writeString(dir.resolve(e.getKey()), e.getValue());
+            }
+        }
+        System.out.println("Generated " + count + " submissions in " + out);
+    }
+
+    static Map<String, String> readSources(Path dir) throws IOException {
+        Map<String, String> sources = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.filter(p -> p.toString().endsWith(".java")).collect(Collectors.toList())) {
+                sources.put(p.getFileName().toString(), Files.readString(p));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Produce the sources of the next submission.
+     */
+    Map<String, String> next() throws IOException {
+        Map<String, String> sources = new TreeMap<>(sample);
+        int mutations = random.nextInt(4);
+        for (int attempt = 0; mutations > 0 && attempt < 10; attempt++) {
+            Map<String, String> mutated = mutate(new TreeMap<>(sources));
+            if (mutated != null && compiles(mutated)) {
+                sources = mutated;
+                mutations--;
+            }
+        }
+        return sources;
+    }
+
+    private Map<String, String> mutate(Map<String, String> sources) {
+        List<String> files = new ArrayList<>(sources.keySet());
+        String file = files.get(random.nextInt(files.size()));
+        String code = sources.get(file);
+
+        switch (random.nextInt(5)) {
+        case 0: { // rename a field in every file that mentions it
+            List<String> names = matches(FIELD, code, 5);
+            if (names.isEmpty()) {
+                return null;
+            }
+            String name = names.get(random.nextInt(names.size()));
+            String renamed = name + "_" + Integer.toString(random.nextInt(1 << 16), 36);
+            sources.replaceAll((f, c) -> c.replaceAll("\\b" + name + "\\b", renamed));
+            return sources;
+        }
+        case 1: { // change the access or finality of a field
+            Matcher m = FIELD.matcher(code);
+            List<MatchResult> fields = new ArrayList<>();
+            while (m.find()) {
+                fields.add(new MatchResult(m.start(), m.end(), m.group(1), m.group(3), m.group(4),
+                            m.group(5), m.group(6)));
+            }
+            if (fields.isEmpty()) {
+                return null;
+            }
+            MatchResult f = fields.get(random.nextInt(fields.size()));
+            String mods = random.nextBoolean() ? f.mods : f.mods.replace("final ", "");
+            String decl = f.indent + ACCESS[random.nextInt(ACCESS.length)] + mods + f.type + " "
+                + f.name + (f.init == null ? "" : " " + f.init) + ";";
+            sources.put(file, code.substring(0, f.start) + decl + code.substring(f.end));
+            return sources;
+        }
+        case 2: { // add an extra class
+            String name = "Extra" + (++extraClasses);
+            sources.put(name + ".java", "class " + name + " {\n"
+                    + "    private final int value;\n\n"
+                    + "    " + name + "(int value) {\n        this.value = value;\n    }\n\n"
+                    + "    int getValue() {\n        return value;\n    }\n}\n");
+            return sources;
+        }
+        case 3: { // overload an existing method
+            List<String> names = matches(METHOD, code, 1);
+            int close = code.lastIndexOf('}');
+            if (names.isEmpty() || close < 0) {
+                return null;
+            }
+            String name = names.get(random.nextInt(names.size()));
+            sources.put(file, code.substring(0, close)
+                    + "\n    void " + name + "(boolean unused) {\n    }\n" + code.substring(close));
+            return sources;
+        }
+        default: { // break the hierarchy
+            Matcher m = SUPERTYPE.matcher(code);
+            if (!m.find()) {
+                return null;
+            }
+            sources.put(file, code.substring(0, m.start()) + code.substring(m.end()));
+            return sources;
+        }
+        }
+    }
+
+    private static List<String> matches(Pattern pattern, String code, int group) {
+        List<String> names = new ArrayList<>();
+        Matcher m = pattern.matcher(code);
+        while (m.find()) {
+            names.add(m.group(group));
+        }
+        return names;
+    }
+
+    private boolean compiles(Map<String, String> sources) throws IOException {
+        Path dir = Files.createTempDirectory("kelas-gen");
+        List<Path> files = new ArrayList<>();
+        try {
+            for (Map.Entry<String, String> e : sources.entrySet()) {
+                Path p = dir.resolve(e.getKey());
+                Files.writeString(p, e.getValue());
+                files.add(p);
+            }
+            return compiler.compile(files).succeeded();
+        } finally {
+            for (Path p : files) {
+                Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * A field declaration found in a source file.
+     */
+    private static class MatchResult {
+        final int start;
+        final int end;
+        final String indent;
+        final String mods;
+        final String type;
+        final String name;
+        final String init;
+
+        MatchResult(int start, int end, String indent, String mods, String type, String name, String init) {
+            this.start = start;
+            this.end = end;
+            this.indent = indent;
+            this.mods = mods;
+            this.type = type;
+            this.name = name;
+            this.init = init;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+#!/bin/bash
+
+# Startup-time benchmark for process-per-submission grading.
+#
+# usage: bash bench/startup.sh [lab] [runs]   (defaults: lab2, 20)
+#
+# Times `java CheckDesign` on the lab's first submission, as check.sh
+# launches it, and the in-process Grader on the whole lab, each with CDS
+# disabled, with the JDK's default archive (under the default collector
+# and under G1) and with the grader archive built by cds.sh, which
+# check.sh runs under G1.  Run cds.sh first.
+
+lab=${1:-lab2}
+runs=${2:-20}
+root=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$root/out/kelas.jar
+JSA=$root/out/kelas.jsa
+
+if [ ! -f $JSA ]; then
+    echo "No archive at $JSA; run cds.sh first" >&2
+    exit 1
+fi
+
+target=$(ls -d $lab/*/ | head -1)
+classes=$(mktemp -d)
+javac -d $classes -cp $JAR $(ls $target/*.java | grep -v '/CheckDesign.java$') $lab/CheckDesign.java
+
+# Average wall-clock milliseconds of $runs launches of the given command
+time_ms() {
+    local start=$(date +%s%N)
+    for ((i = 0; i < runs; i++)); do
+        "$@" > /dev/null 2>&1
+    done
+    echo $(( ($(date +%s%N) - start) / runs / 1000000 ))
+}
+
+printf "%-28s %10s %10s %10s %10s\n" "launch ($runs runs)" "-Xshare:off" "default" "default G1" "kelas.jsa"
+printf "%-28s %8s ms %8s ms %8s ms %8s ms\n" "java CheckDesign" \
+    $(time_ms java -Xshare:off -cp $JAR:$classes CheckDesign) \
+    $(time_ms java -cp $JAR:$classes CheckDesign) \
+    $(time_ms java -XX:+UseG1GC -cp $JAR:$classes CheckDesign) \
+    $(time_ms java -XX:+UseG1GC -XX:SharedArchiveFile=$JSA -cp $JAR:$classes CheckDesign)
+printf "%-28s %8s ms %8s ms %8s ms %8s ms\n" "Grader --no-cache $lab" \
+    $(time_ms java -Xshare:off -cp $JAR cs2030s.grader.Grader --no-cache $lab) \
+    $(time_ms java -cp $JAR cs2030s.grader.Grader --no-cache $lab) \
+    $(time_ms java -XX:+UseG1GC -cp $JAR cs2030s.grader.Grader --no-cache $lab) \
+    $(time_ms java -XX:+UseG1GC -XX:SharedArchiveFile=$JSA -cp $JAR cs2030s.grader.Grader --no-cache $lab)
+
+rm -rf $classes
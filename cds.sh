@@ -0,0 +1,39 @@
+#!/bin/bash
+
+# Build the grader jar and a class data sharing (AppCDS) archive for it.
+#
+# usage: bash cds.sh [lab]   (defaults to lab2)
+#
+# The archive is trained on the path check.sh takes for every submission:
+# a fresh `java CheckDesign` process.  A training launch on the lab's
+# first submission records the classes it loads, and a static archive is
+# dumped from that list: the JDK classes and the cs2030s.grader classes of
+# the jar (the submission's own classes live in a temporary folder, which
+# CDS cannot archive, and are skipped).  The archive is dumped with G1 so
+# that it also holds the archived Java heap (interned strings, the module
+# graph), which the JVM only maps when it runs with G1 too; check.sh
+# passes both flags when the archive exists.
+# Rebuild it after changing the grader or the JDK: a stale archive is
+# rejected with a warning and the JVM starts without it.
+
+lab=${1:-lab2}
+root=$(cd "$(dirname "$0")" && pwd)
+out=$root/out
+
+# Compile and jar the grader; CDS only archives classes loaded from jars
+rm -rf $out/classes
+javac -d $out/classes $root/src/cs2030s/grader/*.java || exit 1
+jar cf $out/kelas.jar -C $out/classes . || exit 1
+
+# Training launch of CheckDesign on the first submission, as check.sh runs it
+target=$(ls -d $lab/*/ | head -1)
+classes=$(mktemp -d)
+javac -d $classes -cp $out/kelas.jar $(ls $target/*.java | grep -v '/CheckDesign.java$') $lab/CheckDesign.java || exit 1
+java -XX:DumpLoadedClassList=$out/kelas.classlist -cp $out/kelas.jar:$classes CheckDesign > /dev/null
+rm -rf $classes
+
+# Dump the archive; classes of the list outside the jar are skipped with
+# a warning
+rm -f $out/kelas.jsa
+java -XX:+UseG1GC -Xshare:dump -XX:SharedClassListFile=$out/kelas.classlist \
+    -XX:SharedArchiveFile=$out/kelas.jsa -cp $out/kelas.jar > /dev/null 2>&1 || exit 1
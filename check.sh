@@ -1,7 +1,9 @@
 #!/bin/bash
 
-# Required files for autograding
-REQUIRED="Check Kelas KelasFields KelasMethods KelasUtils CheckDesign"
+# Grader jar and class data sharing archive, built by check_all.sh / cds.sh
+root=$(cd "$(dirname "$0")" && pwd)
+JAR=$root/out/kelas.jar
+JSA=$root/out/kelas.jsa
 
 # Lab folder path
 lab=$1
@@ -9,27 +11,17 @@ lab=$1
 # Submission/student id
 target=$2
 
-# cd into student submission folder
-cd $target
+# Compile the submission and CheckDesign outside the submission folder
+classes=$(mktemp -d)
+javac -d $classes -cp $JAR $(ls $target/*.java | grep -v '/CheckDesign.java$') $lab/CheckDesign.java
 
-# Symlink all compiled class files into directory
-for i in $REQUIRED
-do
-	if [ -e ${i}.class ]
-	then
-		rm ${i}.class
-	fi
-	ln -s ../$i.class .
-done
+# Run CheckDesign, sharing the archived grader and JDK classes if present
+CDS=""
+if [ -f $JSA ]; then
+    # The archive was dumped with G1, whose archived heap only maps under G1
+    CDS="-XX:+UseG1GC -XX:SharedArchiveFile=$JSA"
+fi
+java $CDS -cp $JAR:$classes CheckDesign | tee $target/design-bug.txt
 
-# Compile all files
-javac *.java
-
-# Run CheckDesign
-java CheckDesign | tee $userid.design-bug.txt
-
-# Remove all symlinks
-rm *.class
-
-# Go back up one level
-cd ..
+# Remove the compiled classes
+rm -rf $classes
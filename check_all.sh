@@ -2,22 +2,22 @@
 
 # get lab parameter
 lab=$1
+root=$(cd "$(dirname "$0")" && pwd)
 
-# Compile src files
-javac src/*.java -d $lab
-
-# Compile CheckDesign.java file
-javac $lab/CheckDesign.java -d $lab -classpath $lab
+# Build the grader jar unless it is up to date (cds.sh also builds it,
+# together with the class data sharing archive)
+if [ ! -f $root/out/kelas.jar ] || [ -n "$(find $root/src -newer $root/out/kelas.jar)" ]; then
+    rm -rf $root/out/classes $root/out/kelas.jsa
+    javac -d $root/out/classes $root/src/cs2030s/grader/*.java || exit 1
+    jar cf $root/out/kelas.jar -C $root/out/classes .
+fi
 
 # run check for each submission
 for f in $lab/*; do
     if [ -d "$f" ]; then
         printf "=============================================\n"
         printf "Running design check on: $(basename $f)\n"
-        bash check.sh $lab $f
+        bash $root/check.sh $lab $f
         printf "=============================================\n\n"
     fi
 done
-
-# cleanup class files
-rm $lab/*.class
@@ -1,3 +1,7 @@
+import cs2030s.grader.Check;
+import cs2030s.grader.Kelas;
+import cs2030s.grader.KelasUtils;
+import cs2030s.grader.Report;
 import java.util.List;
 
 /*
@@ -36,14 +40,19 @@ class CheckDesign {
         try {
             // Cruise
             Kelas cruise = new Kelas("Cruise");
-            if (cruise.getFields().arePrivate(true).areFinal(true).count() != cruise.getFields().count()) {
-                System.out.println("Cruise contains fields that are not private AND final");
+            Check cruiseFields = Report.check("cruise-private-final-fields", () -> new Check(
+                        cruise.getFields().arePrivate(true).areFinal(true).count() == cruise.getFields().count(),
+                        "Cruise contains fields that are not private AND final"));
+            if (!cruiseFields.passed()) {
+                System.out.println(cruiseFields.getMessage());
             }
 
-            if (!KelasUtils.checkCommonParent("SmallCruise", "BigCruise").passed()) {
-                if (!KelasUtils.checkChildOf("SmallCruise","Cruise").passed()) {
-                    System.out.println("SmallCruise and BigCruise do not have Cruise as common parent");
-                }
+            Check commonParent = Report.check("cruise-common-parent", () -> new Check(
+                        KelasUtils.checkCommonParent("SmallCruise", "BigCruise").passed()
+                        || KelasUtils.checkChildOf("SmallCruise", "Cruise").passed(),
+                        "SmallCruise and BigCruise do not have Cruise as common parent"));
+            if (!commonParent.passed()) {
+                System.out.println(commonParent.getMessage());
             }
 
             // Pakej.mustHavePrivateAndFinalFields("Cruise");
@@ -58,7 +58,7 @@ class CheckDesign {
         success = Pakej.checkIfClassesExist(classes);
 
         if (!success) {
-            System.exit(1);
+            return;
         }
         
         success = true;
@@ -86,7 +86,7 @@ class CheckDesign {
 
         if (success) {
             System.out.println("Success");
-            System.exit(0);
+            return;
         }
 
         success = true;
@@ -118,12 +118,12 @@ class CheckDesign {
         }
         if (success) {
             System.out.println("Success");
-            System.exit(0);
+            return;
         }
         
         if (!success) {
             System.out.println("Your design did not pass the auto-grader. Please revisit the question");
-            System.exit(1);
+            return;
         }
 
     }
@@ -58,7 +58,7 @@ class CheckDesign2 {
         success = KelasUtils.checkIfClassesExist(classes).passed();
 
         if (!success) {
-            System.exit(1);
+            return;
         }
         success = true;
 
@@ -91,7 +91,7 @@ class CheckDesign2 {
 
         if (success) {
             System.out.println("Success");
-            System.exit(0);
+            return;
         }
 
         success = true;
@@ -123,12 +123,12 @@ class CheckDesign2 {
         }
         if (success) {
             System.out.println("Success");
-            System.exit(0);
+            return;
         }
         
         if (!success) {
             System.out.println("Your design did not pass the auto-grader. Please revisit the question");
-            System.exit(1);
+            return;
         }
 
     }
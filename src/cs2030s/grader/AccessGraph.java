@@ -0,0 +1,351 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Field accesses and method calls among the classes of one submission,
+ * extracted from their bytecode.
+ * <p>
+ * The class files of the submission are parsed once and the
+ * instructions of every method are streamed through Bytecode; each
+ * getfield, putfield, getstatic, putstatic and invoke becomes an Access.
+ * No class is loaded, so building the graph runs no student code and
+ * costs time linear in the size of the bytecode.
+ * <p>
+ * A field access is foreign when code of one class reads or writes a
+ * field declared by another class of the submission, other than a
+ * superclass (inherited fields) or a class of the same nest (an inner
+ * class and its outer class).  Enum constants and static final fields
+ * are constants, not state, and never count as foreign.  A class is
+ * encapsulated if no foreign access reaches its fields.
+ * <p>
+ * Like TypeIndex, the graph of a submission is owned by its
+ * SubmissionClassLoader and released with it.
+ */
+public final class AccessGraph {
+    // Graphs of loaders other than SubmissionClassLoader (in practice,
+    // the application loader used by check.sh, which is never unloaded).
+    private static final Map<ClassLoader, AccessGraph> OTHERS =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final int ENUM = 0x4000;
+    private static final int SYNTHETIC = 0x1000;
+
+    private final Set<String> classes;
+    private final Map<String, List<Access>> fieldAccessesBy = new HashMap<>();
+    private final Map<String, List<Access>> fieldAccessesTo = new HashMap<>();
+    private final Map<String, List<Access>> callsBy = new HashMap<>();
+    private final Map<String, List<Access>> callsTo = new HashMap<>();
+
+    /**
+     * Build the graph of the given class files.
+     *
+     * @param files The parsed classes of one submission.
+     */
+    AccessGraph(List<ClassFile> files) {
+        Map<String, ClassFile> byName = new LinkedHashMap<>();
+        for (ClassFile cf : files) {
+            byName.put(cf.getName(), cf);
+        }
+        this.classes = Collections.unmodifiableSet(new HashSet<>(byName.keySet()));
+
+        for (ClassFile cf : byName.values()) {
+            if ((cf.getAccess() & SYNTHETIC) != 0) {
+                // e.g. the switch map class javac generates for a
+                // switch on an enum.
+                continue;
+            }
+            ClassFile.ConstantPool pool = cf.getConstantPool();
+            for (ClassFile.Member m : cf.getMethods()) {
+                if (m.getCode() == null) {
+                    continue;
+                }
+                Bytecode b = new Bytecode(m.getCode());
+                while (b.next()) {
+                    int op = b.opcode();
+                    if (!Bytecode.isFieldAccess(op) && !Bytecode.isInvoke(op)) {
+                        continue;
+                    }
+                    ClassFile.Ref ref = pool.ref(b.operand());
+                    if (Bytecode.isFieldAccess(op)) {
+                        addFieldAccess(byName, cf, m, op, ref);
+                    } else {
+                        Access a = new Access(cf.getName(), m, op, ref, ref.owner, false);
+                        add(callsBy, a.className, a);
+                        add(callsTo, a.owner, a);
+                    }
+                }
+            }
+        }
+        for (Map<String, List<Access>> map : List.of(fieldAccessesBy, fieldAccessesTo, callsBy, callsTo)) {
+            map.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        }
+    }
+
+    private void addFieldAccess(Map<String, ClassFile> byName, ClassFile accessor, ClassFile.Member m,
+            int op, ClassFile.Ref ref) {
+        // The owner of a field reference is the type it is accessed
+        // through; find the class that declares the field.
+        String declaring = ref.owner;
+        ClassFile.Member field = null;
+        for (ClassFile cf = byName.get(ref.owner); cf != null; cf = byName.get(cf.getSuperName())) {
+            field = fieldOf(cf, ref.name);
+            if (field != null) {
+                declaring = cf.getName();
+                break;
+            }
+        }
+        boolean constant = field != null && ((field.getAccess() & ENUM) != 0
+                || Modifier.isStatic(field.getAccess()) && Modifier.isFinal(field.getAccess()));
+        boolean foreign = field != null && !constant
+            && !nestOf(declaring).equals(nestOf(accessor.getName()))
+            && !isSuperclass(byName, declaring, accessor);
+        Access a = new Access(accessor.getName(), m, op, ref, declaring, foreign);
+        add(fieldAccessesBy, a.className, a);
+        add(fieldAccessesTo, declaring, a);
+    }
+
+    private static ClassFile.Member fieldOf(ClassFile cf, String name) {
+        for (ClassFile.Member f : cf.getFields()) {
+            if (f.getName().equals(name)) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSuperclass(Map<String, ClassFile> byName, String name, ClassFile c) {
+        for (ClassFile s = byName.get(c.getSuperName()); s != null; s = byName.get(s.getSuperName())) {
+            if (s.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The top-level class of a binary class name: nested classes and
+     * their outer class share private members.
+     */
+    private static String nestOf(String name) {
+        int dollar = name.indexOf('$');
+        return dollar < 0 ? name : name.substring(0, dollar);
+    }
+
+    private static void add(Map<String, List<Access>> map, String key, Access a) {
+        map.computeIfAbsent(key, k -> new ArrayList<>()).add(a);
+    }
+
+    /**
+     * Get the graph of the submission the current thread is checking.
+     */
+    static AccessGraph current() throws IOException {
+        return of(KelasUtils.getClassLoader());
+    }
+
+    /**
+     * Get the graph of the classes of a loader, building it on first use.
+     */
+    static AccessGraph of(ClassLoader loader) throws IOException {
+        if (loader instanceof SubmissionClassLoader) {
+            return ((SubmissionClassLoader) loader).getAccessGraph();
+        }
+        synchronized (OTHERS) {
+            AccessGraph graph = OTHERS.get(loader);
+            if (graph == null) {
+                graph = read(loader, KelasUtils.getClassNames(loader));
+                OTHERS.put(loader, graph);
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * Build the graph of the named classes from the class files a loader
+     * finds for them.
+     */
+    static AccessGraph read(ClassLoader loader, List<String> names) throws IOException {
+        List<ClassFile> files = new ArrayList<>(names.size());
+        for (String name : names) {
+            try (InputStream in = loader.getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new IOException("Class file of " + name + " not found");
+                }
+                files.add(ClassFile.read(in));
+            }
+        }
+        return new AccessGraph(files);
+    }
+
+    /**
+     * Get the field accesses in the code of a class.
+     *
+     * @param className The binary name of the class.
+     * @return The accesses, in the order of the code.
+     */
+    public List<Access> getFieldAccessesBy(String className) {
+        return fieldAccessesBy.getOrDefault(className, List.of());
+    }
+
+    /**
+     * Get the accesses to the fields a class declares, from any class
+     * of the submission.
+     *
+     * @param className The binary name of the class.
+     * @return The accesses.
+     */
+    public List<Access> getFieldAccessesTo(String className) {
+        return fieldAccessesTo.getOrDefault(className, List.of());
+    }
+
+    /**
+     * Get the method calls in the code of a class, constructor calls
+     * included.
+     *
+     * @param className The binary name of the class.
+     * @return The calls, in the order of the code.
+     */
+    public List<Access> getCallsBy(String className) {
+        return callsBy.getOrDefault(className, List.of());
+    }
+
+    /**
+     * Get the calls to the methods of a class from any class of the
+     * submission.  Calls are grouped by the type the method is invoked
+     * on, which for an inherited method is the subclass.
+     *
+     * @param className The binary name of the class.
+     * @return The calls.
+     */
+    public List<Access> getCallsTo(String className) {
+        return callsTo.getOrDefault(className, List.of());
+    }
+
+    /**
+     * Check if no other class of the submission reaches into the fields
+     * of a class.
+     *
+     * @param className The binary name of the class.
+     * @return true if none of its fields is accessed foreignly.
+     */
+    public boolean isEncapsulated(String className) {
+        for (Access a : getFieldAccessesTo(className)) {
+            if (a.isForeign()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the names of the classes in the graph.
+     * @return Binary class names
+     */
+    public Set<String> getClassNames() {
+        return classes;
+    }
+
+    /**
+     * A field access or method call: the instruction, the method whose
+     * code contains it and the member it references.
+     */
+    public static final class Access {
+        private final String className;
+        private final String methodName;
+        private final String methodDescriptor;
+        private final int opcode;
+        private final String owner;
+        private final String name;
+        private final String descriptor;
+        private final boolean foreign;
+
+        Access(String className, ClassFile.Member method, int opcode, ClassFile.Ref ref, String owner,
+                boolean foreign) {
+            this.className = className;
+            this.methodName = method.getName();
+            this.methodDescriptor = method.getDescriptor();
+            this.opcode = opcode;
+            this.owner = owner;
+            this.name = ref.name;
+            this.descriptor = ref.descriptor;
+            this.foreign = foreign;
+        }
+
+        /**
+         * Get the class whose code makes the access.
+         * @return Binary class name
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public String getMethodDescriptor() {
+            return methodDescriptor;
+        }
+
+        /**
+         * Get the class of the accessed member: the declaring class of a
+         * field of the submission, otherwise the class it is accessed
+         * through.
+         * @return Binary class name
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        public boolean isFieldAccess() {
+            return Bytecode.isFieldAccess(opcode);
+        }
+
+        /**
+         * Check if the access assigns a field.
+         * @return true for putfield and putstatic
+         */
+        public boolean isWrite() {
+            return opcode == Bytecode.PUTFIELD || opcode == Bytecode.PUTSTATIC;
+        }
+
+        /**
+         * Check if the access reaches into a field of another class.
+         * @return true if foreign, as defined by AccessGraph
+         */
+        public boolean isForeign() {
+            return foreign;
+        }
+
+        @Override
+        public String toString() {
+            String verb = isFieldAccess() ? (isWrite() ? " writes " : " reads ") : " calls ";
+            return className + "." + methodName + verb + owner + "." + name
+                + (isFieldAccess() ? "" : parameters());
+        }
+
+        private String parameters() {
+            return "(" + String.join(",", new ClassFile.Member(0, name, descriptor, null, null, null)
+                        .getParameterTypeNames()) + ")";
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package cs2030s.grader;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memoized ancestor sets for transitive supertype queries.
+ * <p>
+ * Every type seen gets a small integer id, and the set of its proper
+ * supertypes (superclasses and interfaces, except Object) is computed
+ * once as a BitSet from the sets of its direct supertypes.  "Does A
+ * extend B somewhere up the hierarchy" is then a single bit test,
+ * however deep the hierarchy.
+ * <p>
+ * A SubmissionClassLoader owns the index for its classes, so ids stay
+ * dense within a submission and are released with it.  Classes of other
+ * loaders (the JDK, or check.sh's application loader) share one index.
+ */
+final class AncestorIndex {
+    private static final AncestorIndex SHARED = new AncestorIndex();
+
+    private final Map<Class<?>, Integer> ids = new HashMap<>();
+    private final List<Class<?>> types = new ArrayList<>();
+    private final Map<Class<?>, BitSet> ancestors = new HashMap<>();
+
+    /**
+     * Get the index that should hold the given classes: the one of the
+     * submission any of them comes from, or the shared one.
+     */
+    static AncestorIndex of(Class<?>... classes) {
+        for (Class<?> c : classes) {
+            if (c.getClassLoader() instanceof SubmissionClassLoader) {
+                return ((SubmissionClassLoader) c.getClassLoader()).getAncestorIndex();
+            }
+        }
+        return SHARED;
+    }
+
+    private synchronized int idOf(Class<?> c) {
+        Integer id = ids.get(c);
+        if (id == null) {
+            id = types.size();
+            ids.put(c, id);
+            types.add(c);
+        }
+        return id;
+    }
+
+    /**
+     * Get the ids of all proper supertypes of c.  The set is shared and
+     * must not be modified.
+     */
+    synchronized BitSet ancestorsOf(Class<?> c) {
+        BitSet set = ancestors.get(c);
+        if (set == null) {
+            set = new BitSet();
+            Class<?> s = c.getSuperclass();
+            if (s != null && s != Object.class) {
+                set.set(idOf(s));
+                set.or(ancestorsOf(s));
+            }
+            for (Class<?> i : c.getInterfaces()) {
+                set.set(idOf(i));
+                set.or(ancestorsOf(i));
+            }
+            ancestors.put(c, set);
+        }
+        return set;
+    }
+
+    /**
+     * Check if ancestor is a proper supertype of c.
+     */
+    synchronized boolean isAncestor(Class<?> c, Class<?> ancestor) {
+        return ancestorsOf(c).get(idOf(ancestor));
+    }
+
+    /**
+     * Get the most specific supertypes shared by a and b: the common
+     * ancestors that are not themselves an ancestor of another common
+     * ancestor.  Object does not count.
+     */
+    synchronized List<Class<?>> lowestCommonAncestors(Class<?> a, Class<?> b) {
+        BitSet common = (BitSet) ancestorsOf(a).clone();
+        common.and(ancestorsOf(b));
+
+        BitSet lowest = (BitSet) common.clone();
+        for (int i = common.nextSetBit(0); i >= 0; i = common.nextSetBit(i + 1)) {
+            lowest.andNot(ancestorsOf(types.get(i)));
+        }
+
+        List<Class<?>> list = new ArrayList<>();
+        for (int i = lowest.nextSetBit(0); i >= 0; i = lowest.nextSetBit(i + 1)) {
+            list.add(types.get(i));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,258 @@
+package cs2030s.grader;
+
+/**
+ * Decoder for the instructions of a method (JVMS chapter 6), read
+ * straight from the code array of a ClassFile.Member.
+ * <p>
+ * A Bytecode is a cursor: next() advances to the following instruction,
+ * whose opcode and operand are then available, so a method is streamed
+ * without allocating anything per instruction and without loading any
+ * class.  The operand is a constant pool index for instructions that
+ * reference the pool (see isConstantRef), the absolute target offset for
+ * branches, the local variable index for loads, stores and iinc, and the
+ * immediate value otherwise.  A wide prefix is folded into the
+ * instruction it widens.  The operand of a switch is its default
+ * target; its cases are read with switchKey and switchTarget.
+ */
+final class Bytecode {
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int IINC = 0x84;
+    static final int GOTO = 0xa7;
+    static final int JSR = 0xa8;
+    static final int TABLESWITCH = 0xaa;
+    static final int LOOKUPSWITCH = 0xab;
+    static final int GETSTATIC = 0xb2;
+    static final int PUTSTATIC = 0xb3;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int INVOKEDYNAMIC = 0xba;
+    static final int WIDE = 0xc4;
+    static final int MULTIANEWARRAY = 0xc5;
+    static final int GOTO_W = 0xc8;
+    static final int JSR_W = 0xc9;
+
+    // Operand formats.
+    private static final byte NONE = 0;
+    private static final byte BYTE = 1;
+    private static final byte SHORT = 2;
+    private static final byte LOCAL = 3;
+    private static final byte CONSTANT_1 = 4;
+    private static final byte CONSTANT_2 = 5;
+    private static final byte CONSTANT_4 = 6;
+    private static final byte BRANCH_2 = 7;
+    private static final byte BRANCH_4 = 8;
+    private static final byte SWITCH = 9;
+
+    private static final byte[] FORMAT = new byte[256];
+
+    static {
+        FORMAT[0x10] = BYTE;      // bipush
+        FORMAT[0x11] = SHORT;     // sipush
+        FORMAT[LDC] = CONSTANT_1;
+        FORMAT[LDC_W] = CONSTANT_2;
+        FORMAT[0x14] = CONSTANT_2; // ldc2_w
+        for (int op = 0x15; op <= 0x19; op++) {
+            FORMAT[op] = LOCAL;   // iload .. aload
+        }
+        for (int op = 0x36; op <= 0x3a; op++) {
+            FORMAT[op] = LOCAL;   // istore .. astore
+        }
+        FORMAT[IINC] = LOCAL;
+        for (int op = 0x99; op <= JSR; op++) {
+            FORMAT[op] = BRANCH_2; // if<cond>, if_<cmp>, goto, jsr
+        }
+        FORMAT[0xa9] = LOCAL;     // ret
+        FORMAT[TABLESWITCH] = SWITCH;
+        FORMAT[LOOKUPSWITCH] = SWITCH;
+        for (int op = GETSTATIC; op <= INVOKESTATIC; op++) {
+            FORMAT[op] = CONSTANT_2;
+        }
+        FORMAT[INVOKEINTERFACE] = CONSTANT_4;
+        FORMAT[INVOKEDYNAMIC] = CONSTANT_4;
+        FORMAT[0xbb] = CONSTANT_2; // new
+        FORMAT[0xbc] = BYTE;      // newarray
+        FORMAT[0xbd] = CONSTANT_2; // anewarray
+        FORMAT[0xc0] = CONSTANT_2; // checkcast
+        FORMAT[0xc1] = CONSTANT_2; // instanceof
+        FORMAT[MULTIANEWARRAY] = CONSTANT_2;
+        FORMAT[0xc6] = BRANCH_2;  // ifnull
+        FORMAT[0xc7] = BRANCH_2;  // ifnonnull
+        FORMAT[GOTO_W] = BRANCH_4;
+        FORMAT[JSR_W] = BRANCH_4;
+    }
+
+    private final byte[] code;
+    private int next;
+    private int offset = -1;
+    private int opcode;
+    private int operand;
+    private int value;
+    // Start of the jump table of a switch.
+    private int table;
+
+    /**
+     * Construct a cursor before the first instruction of a method.
+     *
+     * @param code The code array, from ClassFile.Member.getCode().
+     */
+    Bytecode(byte[] code) {
+        this.code = code;
+    }
+
+    /**
+     * Advance to the next instruction.
+     *
+     * @return false if there is none.
+     */
+    boolean next() {
+        if (next >= code.length) {
+            return false;
+        }
+        offset = next;
+        opcode = u1(offset);
+        boolean wide = opcode == WIDE;
+        int at = offset + 1;
+        if (wide) {
+            opcode = u1(at++);
+        }
+        value = 0;
+        switch (FORMAT[opcode]) {
+        case BYTE:
+            operand = code[at++];
+            break;
+        case SHORT:
+            operand = (short) u2(at);
+            at += 2;
+            break;
+        case LOCAL:
+            operand = wide ? u2(at) : u1(at);
+            at += wide ? 2 : 1;
+            if (opcode == IINC) {
+                value = wide ? (short) u2(at) : code[at];
+                at += wide ? 2 : 1;
+            }
+            break;
+        case CONSTANT_1:
+            operand = u1(at++);
+            break;
+        case CONSTANT_2:
+            operand = u2(at);
+            at += 2;
+            if (opcode == MULTIANEWARRAY) {
+                value = u1(at++);
+            }
+            break;
+        case CONSTANT_4:
+            operand = u2(at);
+            at += 4;
+            break;
+        case BRANCH_2:
+            operand = offset + (short) u2(at);
+            at += 2;
+            break;
+        case BRANCH_4:
+            operand = offset + s4(at);
+            at += 4;
+            break;
+        case SWITCH:
+            at = (offset + 4) & ~3;
+            table = at;
+            operand = offset + s4(at);
+            if (opcode == TABLESWITCH) {
+                value = s4(at + 8) - s4(at + 4) + 1;
+                at += 12 + 4 * value;
+            } else {
+                value = s4(at + 4);
+                at += 8 + 8 * value;
+            }
+            break;
+        default:
+            operand = 0;
+        }
+        next = at;
+        return true;
+    }
+
+    /**
+     * Get the offset of the instruction in the code array.
+     */
+    int offset() {
+        return offset;
+    }
+
+    int opcode() {
+        return opcode;
+    }
+
+    /**
+     * Get the operand of the instruction, as described above; 0 if it
+     * has none.
+     */
+    int operand() {
+        return operand;
+    }
+
+    /**
+     * Get the second operand: the increment of iinc, the dimensions of
+     * multianewarray and the number of cases of a switch; 0 otherwise.
+     */
+    int value() {
+        return value;
+    }
+
+    /**
+     * Get the key of case k of a tableswitch or lookupswitch, for k
+     * below value().
+     */
+    int switchKey(int k) {
+        return opcode == TABLESWITCH ? s4(table + 4) + k : s4(table + 8 + 8 * k);
+    }
+
+    /**
+     * Get the absolute target offset of case k of a switch.
+     */
+    int switchTarget(int k) {
+        return offset + (opcode == TABLESWITCH ? s4(table + 12 + 4 * k) : s4(table + 12 + 8 * k));
+    }
+
+    /**
+     * Check if the operand of an instruction is a constant pool index.
+     */
+    static boolean isConstantRef(int opcode) {
+        byte format = FORMAT[opcode];
+        return format == CONSTANT_1 || format == CONSTANT_2 || format == CONSTANT_4;
+    }
+
+    /**
+     * Check if the operand of an instruction is a branch target.
+     */
+    static boolean isBranch(int opcode) {
+        byte format = FORMAT[opcode];
+        return format == BRANCH_2 || format == BRANCH_4 || format == SWITCH;
+    }
+
+    static boolean isFieldAccess(int opcode) {
+        return opcode >= GETSTATIC && opcode <= PUTFIELD;
+    }
+
+    static boolean isInvoke(int opcode) {
+        return opcode >= INVOKEVIRTUAL && opcode <= INVOKEINTERFACE;
+    }
+
+    private int u1(int at) {
+        return code[at] & 0xff;
+    }
+
+    private int u2(int at) {
+        return (u1(at) << 8) | u1(at + 1);
+    }
+
+    private int s4(int at) {
+        return (u2(at) << 16) | u2(at + 2);
+    }
+}
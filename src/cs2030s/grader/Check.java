@@ -1,6 +1,6 @@
 package cs2030s.grader;
 
-class Check {
+public class Check {
     private boolean pass;
     private String error;
 
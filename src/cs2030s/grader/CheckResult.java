@@ -0,0 +1,53 @@
+package cs2030s.grader;
+
+/**
+ * The outcome of one Check on one submission, as written to a
+ * ResultSink.
+ */
+public class CheckResult {
+    private final String submission;
+    private final String lab;
+    private final String rule;
+    private final boolean passed;
+    private final String message;
+    private final long elapsedNanos;
+
+    public CheckResult(String submission, String lab, String rule, boolean passed, String message,
+            long elapsedNanos) {
+        this.submission = submission;
+        this.lab = lab;
+        this.rule = rule;
+        this.passed = passed;
+        this.message = message;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getSubmission() {
+        return submission;
+    }
+
+    public String getLab() {
+        return lab;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public boolean passed() {
+        return passed;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return submission + " " + rule + ": " + (passed ? "passed" : message);
+    }
+}
@@ -0,0 +1,494 @@
+package cs2030s.grader;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lightweight model of a compiled class, read straight from the class
+ * file format (JVMS chapter 4) without loading the class.
+ * <p>
+ * Only what design checks need is kept: names, access flags, the
+ * superclass and interfaces, fields, methods, their descriptors and
+ * generic signatures, constant values of static final fields and the
+ * bytecode of methods, which Bytecode decodes against the constant pool.
+ * Class names use the binary form with dots, as Class.getName() does.
+ */
+public final class ClassFile {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final int access;
+    private final String name;
+    private final String superName;
+    private final List<String> interfaces;
+    private final String signature;
+    private final List<Member> fields;
+    private final List<Member> methods;
+    private final ConstantPool pool;
+
+    private ClassFile(int access, String name, String superName, List<String> interfaces,
+            String signature, List<Member> fields, List<Member> methods, ConstantPool pool) {
+        this.access = access;
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.signature = signature;
+        this.fields = fields;
+        this.methods = methods;
+        this.pool = pool;
+    }
+
+    /**
+     * Parse a class file.
+     *
+     * @param bytes The content of a .class file.
+     * @return The parsed model.
+     * @throws IOException Thrown if the bytes are not a valid class file.
+     */
+    public static ClassFile read(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Parse a class file.
+     *
+     * @param in Stream positioned at the start of a class file.
+     * @return The parsed model.
+     * @throws IOException Thrown if the stream is not a valid class file.
+     */
+    public static ClassFile read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        data.readUnsignedShort(); // minor_version
+        data.readUnsignedShort(); // major_version
+
+        ConstantPool pool = new ConstantPool(data);
+        int access = data.readUnsignedShort();
+        String name = pool.className(data.readUnsignedShort());
+        int superIndex = data.readUnsignedShort();
+        String superName = superIndex == 0 ? null : pool.className(superIndex);
+
+        int count = data.readUnsignedShort();
+        List<String> interfaces = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            interfaces.add(pool.className(data.readUnsignedShort()));
+        }
+
+        List<Member> fields = readMembers(data, pool);
+        List<Member> methods = readMembers(data, pool);
+
+        String signature = null;
+        count = data.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String attribute = pool.utf8(data.readUnsignedShort());
+            int length = data.readInt();
+            if (attribute.equals("Signature")) {
+                signature = pool.utf8(data.readUnsignedShort());
+            } else if (attribute.equals("BootstrapMethods")) {
+                pool.readBootstrapMethods(data);
+            } else {
+                data.skipNBytes(length);
+            }
+        }
+
+        return new ClassFile(access, name, superName, Collections.unmodifiableList(interfaces),
+                signature, fields, methods, pool);
+    }
+
+    private static List<Member> readMembers(DataInputStream data, ConstantPool pool) throws IOException {
+        int count = data.readUnsignedShort();
+        List<Member> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int access = data.readUnsignedShort();
+            String name = pool.utf8(data.readUnsignedShort());
+            String descriptor = pool.utf8(data.readUnsignedShort());
+            String signature = null;
+            Object constantValue = null;
+            byte[] code = null;
+
+            int attributes = data.readUnsignedShort();
+            for (int j = 0; j < attributes; j++) {
+                String attribute = pool.utf8(data.readUnsignedShort());
+                int length = data.readInt();
+                if (attribute.equals("Signature")) {
+                    signature = pool.utf8(data.readUnsignedShort());
+                } else if (attribute.equals("ConstantValue")) {
+                    constantValue = pool.constant(data.readUnsignedShort());
+                } else if (attribute.equals("Code")) {
+                    data.readUnsignedShort(); // max_stack
+                    data.readUnsignedShort(); // max_locals
+                    code = data.readNBytes(data.readInt());
+                    // The exception table and the attributes of the code
+                    // (line numbers, local variables) are not needed.
+                    data.skipNBytes(length - 8 - code.length);
+                } else {
+                    data.skipNBytes(length);
+                }
+            }
+            members.add(new Member(access, name, descriptor, signature, constantValue, code));
+        }
+        return Collections.unmodifiableList(members);
+    }
+
+    /**
+     * Convert a field descriptor to a Java type name, e.g. "I" to "int",
+     * "Ljava/lang/String;" to "java.lang.String" and "[D" to "double[]".
+     *
+     * @param descriptor The field descriptor.
+     * @return The type name.
+     */
+    public static String typeName(String descriptor) {
+        int dims = 0;
+        while (descriptor.charAt(dims) == '[') {
+            dims++;
+        }
+        String base;
+        switch (descriptor.charAt(dims)) {
+        case 'B': base = "byte"; break;
+        case 'C': base = "char"; break;
+        case 'D': base = "double"; break;
+        case 'F': base = "float"; break;
+        case 'I': base = "int"; break;
+        case 'J': base = "long"; break;
+        case 'S': base = "short"; break;
+        case 'Z': base = "boolean"; break;
+        case 'V': base = "void"; break;
+        default:
+            base = descriptor.substring(dims + 1, descriptor.length() - 1).replace('/', '.');
+        }
+        return base + "[]".repeat(dims);
+    }
+
+    public int getAccess() {
+        return access;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the name of the superclass.
+     * @return The superclass name, or null for java.lang.Object
+     */
+    public String getSuperName() {
+        return superName;
+    }
+
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Get the generic signature of the class.
+     * @return The signature, or null if the class is not generic
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    public List<Member> getFields() {
+        return fields;
+    }
+
+    /**
+     * Get all methods, including constructors ("&lt;init&gt;") and the
+     * static initializer ("&lt;clinit&gt;").
+     * @return List of methods
+     */
+    public List<Member> getMethods() {
+        return methods;
+    }
+
+    ConstantPool getConstantPool() {
+        return pool;
+    }
+
+    public boolean isInterface() {
+        return (access & Modifier.INTERFACE) != 0;
+    }
+
+    public boolean isAbstract() {
+        return (access & Modifier.ABSTRACT) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return (isInterface() ? "interface " : "class ") + name;
+    }
+
+    /**
+     * A field or method declared in a class file.
+     */
+    public static final class Member {
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final String signature;
+        private final Object constantValue;
+        private final byte[] code;
+
+        Member(int access, String name, String descriptor, String signature, Object constantValue,
+                byte[] code) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+            this.constantValue = constantValue;
+            this.code = code;
+        }
+
+        /**
+         * Get the access flags; they use the same bits as
+         * java.lang.reflect.Modifier.
+         * @return Access flags
+         */
+        public int getAccess() {
+            return access;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Get the generic signature.
+         * @return The signature, or null if the member is not generic
+         */
+        public String getSignature() {
+            return signature;
+        }
+
+        /**
+         * Get the compile-time constant of a static final field.
+         * @return Integer, Long, Float, Double or String; null if none
+         */
+        public Object getConstantValue() {
+            return constantValue;
+        }
+
+        /**
+         * Get the bytecode of a method, to decode with Bytecode.
+         * @return The code array, or null for fields and abstract or
+         *     native methods
+         */
+        byte[] getCode() {
+            return code;
+        }
+
+        /**
+         * Get the type of a field, or the return type of a method.
+         * @return Java type name
+         */
+        public String getTypeName() {
+            return typeName(descriptor.substring(descriptor.lastIndexOf(')') + 1));
+        }
+
+        /**
+         * Get the parameter types of a method.
+         * @return Java type names; empty for fields
+         */
+        public List<String> getParameterTypeNames() {
+            List<String> names = new ArrayList<>();
+            int i = 1;
+            while (isMethod() && descriptor.charAt(i) != ')') {
+                int start = i;
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+                names.add(typeName(descriptor.substring(start, i)));
+            }
+            return names;
+        }
+
+        public boolean isMethod() {
+            return descriptor.charAt(0) == '(';
+        }
+
+        @Override
+        public String toString() {
+            int mask = isMethod() ? Modifier.methodModifiers() : Modifier.fieldModifiers();
+            String mods = Modifier.toString(access & mask);
+            return (mods.isEmpty() ? "" : mods + " ") + getTypeName() + " " + name
+                + (isMethod() ? "(" + String.join(",", getParameterTypeNames()) + ")" : "");
+        }
+    }
+
+    /**
+     * The constant pool of a class file.
+     */
+    static final class ConstantPool {
+        private final int[] tags;
+        private final Object[] values;
+        private final int[] refs;
+        private int[][] bootstrapMethods = new int[0][];
+
+        ConstantPool(DataInputStream data) throws IOException {
+            int count = data.readUnsignedShort();
+            this.tags = new int[count];
+            this.values = new Object[count];
+            this.refs = new int[count];
+
+            for (int i = 1; i < count; i++) {
+                int tag = data.readUnsignedByte();
+                tags[i] = tag;
+                switch (tag) {
+                case 1: // Utf8
+                    values[i] = data.readUTF();
+                    break;
+                case 3: // Integer
+                    values[i] = data.readInt();
+                    break;
+                case 4: // Float
+                    values[i] = data.readFloat();
+                    break;
+                case 5: // Long
+                    values[i++] = data.readLong();
+                    break;
+                case 6: // Double
+                    values[i++] = data.readDouble();
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    refs[i] = data.readUnsignedShort();
+                    break;
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    refs[i] = (data.readUnsignedShort() << 16) | data.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    refs[i] = (data.readUnsignedByte() << 16) | data.readUnsignedShort();
+                    break;
+                default:
+                    throw new IOException("Bad constant pool tag " + tag + " at " + i);
+                }
+            }
+        }
+
+        String utf8(int index) {
+            return (String) values[index];
+        }
+
+        String className(int index) {
+            return utf8(refs[index]).replace('/', '.');
+        }
+
+        Object constant(int index) {
+            return tags[index] == 8 ? utf8(refs[index]) : values[index];
+        }
+
+        /**
+         * Read the BootstrapMethods attribute, which lists the bootstrap
+         * method and static arguments of each InvokeDynamic entry.
+         */
+        void readBootstrapMethods(DataInputStream data) throws IOException {
+            bootstrapMethods = new int[data.readUnsignedShort()][];
+            for (int i = 0; i < bootstrapMethods.length; i++) {
+                // The method handle, followed by the arguments.
+                int handle = data.readUnsignedShort();
+                int[] method = new int[data.readUnsignedShort() + 1];
+                method[0] = handle;
+                for (int j = 1; j < method.length; j++) {
+                    method[j] = data.readUnsignedShort();
+                }
+                bootstrapMethods[i] = method;
+            }
+        }
+
+        int tag(int index) {
+            return tags[index];
+        }
+
+        /**
+         * Get the number of entries, including the unused entry 0 and
+         * the second entry taken by each Long and Double.
+         */
+        int size() {
+            return tags.length;
+        }
+
+        /**
+         * Describe the bootstrap method and static arguments of an
+         * InvokeDynamic or Dynamic entry, e.g. the recipe of a string concatenation
+         * or the implementation method of a lambda.
+         */
+        String bootstrap(int index) {
+            int[] method = bootstrapMethods[refs[index] >>> 16];
+            StringBuilder sb = new StringBuilder();
+            for (int i : method) {
+                sb.append(describe(i)).append(';');
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Describe a loadable entry as text: a class by its name, a
+         * MethodHandle by its kind and member (e.g. "6 Case.of:(I)LCase;"),
+         * a MethodType by its descriptor and a Dynamic constant by its
+         * name, type and bootstrap method.
+         */
+        String describe(int index) {
+            switch (tags[index]) {
+            case 7: // Class
+                return className(index);
+            case 15: // MethodHandle
+                return (refs[index] >>> 16) + " " + ref(refs[index] & 0xffff);
+            case 16: // MethodType
+                return utf8(refs[index]);
+            case 17: // Dynamic
+                return ref(index) + " " + bootstrap(index);
+            default:
+                return String.valueOf(constant(index));
+            }
+        }
+
+        /**
+         * Resolve a Fieldref, Methodref, InterfaceMethodref, Dynamic or
+         * InvokeDynamic entry.  The owner of the last two is null.
+         */
+        Ref ref(int index) {
+            int nameAndType = refs[index] & 0xffff;
+            String owner = tags[index] == 17 || tags[index] == 18 ? null : className(refs[index] >>> 16);
+            return new Ref(owner, utf8(refs[nameAndType] >>> 16), utf8(refs[nameAndType] & 0xffff));
+        }
+    }
+
+    /**
+     * A field or method referenced by an instruction.
+     */
+    static final class Ref {
+        final String owner;
+        final String name;
+        final String descriptor;
+
+        Ref(String owner, String name, String descriptor) {
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        @Override
+        public String toString() {
+            return (owner == null ? "" : owner + ".") + name + ":" + descriptor;
+        }
+    }
+}
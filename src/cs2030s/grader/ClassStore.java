@@ -0,0 +1,161 @@
+package cs2030s.grader;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed store of compiled submissions, consulted by
+ * SubmissionCompiler before it runs javac.
+ * <p>
+ * An entry is keyed by the SHA-256 of the grader's own class files,
+ * the Java version, the javac options, the class files on the
+ * classpath they name, and the names and contents of the sources
+ * compiled together, and holds either the class files or the
+ * compilation errors.  The classpath counts by content, not by its
+ * text, so rebuilding the grader or a library in place invalidates
+ * what was compiled against it.  Identical sources therefore compile once, across
+ * grading passes and across labs sharing the store.
+ * <p>
+ * Like GradeCache, each entry is one file written to a temporary file
+ * and moved into place, so a store is safe to share between threads
+ * and between grader processes.
+ */
+public class ClassStore {
+    private static final int MAGIC = 0x4b454c43;
+    private static final List<String> CLASSPATH = List.of("-classpath", "-cp", "--class-path");
+
+    private final Path dir;
+    private final Map<List<String>, byte[]> optionDigests = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a store.
+     *
+     * @param dir The folder holding the entries; created if missing.
+     */
+    public ClassStore(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+    }
+
+    /**
+     * Compute the key of a compilation.
+     *
+     * @param options The javac options.
+     * @param sources The .java files compiled together.
+     * @return The key, as a hex string.
+     */
+    String key(List<String> options, Collection<Path> sources) throws IOException {
+        MessageDigest md = GradeCache.sha256();
+        md.update(GradeCache.graderDigest());
+        GradeCache.update(md, System.getProperty("java.version"));
+        md.update(optionDigest(options));
+        for (Path source : sources) {
+            GradeCache.update(md, source.getFileName().toString());
+            byte[] content = Files.readAllBytes(source);
+            GradeCache.update(md, String.valueOf(content.length));
+            md.update(content);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * Get the digest of javac options, with each classpath replaced by
+     * the digests of its entries, computed once per store.
+     */
+    private byte[] optionDigest(List<String> options) throws IOException {
+        byte[] digest = optionDigests.get(options);
+        if (digest != null) {
+            return digest;
+        }
+        MessageDigest md = GradeCache.sha256();
+        for (int i = 0; i < options.size(); i++) {
+            String option = options.get(i);
+            GradeCache.update(md, option);
+            if (CLASSPATH.contains(option) && i + 1 < options.size()) {
+                for (String entry : options.get(++i).split(File.pathSeparator)) {
+                    md.update(GradeCache.digestOf(Path.of(entry.isEmpty() ? "." : entry)));
+                }
+            }
+        }
+        digest = md.digest();
+        optionDigests.put(options, digest);
+        return digest;
+    }
+
+    /**
+     * Look up a compilation.
+     *
+     * @param key The key of the compilation.
+     * @return The stored result, or null if there is none or it is
+     *     unreadable.
+     */
+    SubmissionCompiler.Result get(String key) {
+        try (InputStream in = Files.newInputStream(dir.resolve(key))) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) {
+                return null;
+            }
+            boolean success = data.readBoolean();
+            String errors = GradeCache.readString(data);
+            int n = data.readInt();
+            Map<String, byte[]> classes = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                String name = data.readUTF();
+                byte[] bytes = new byte[data.readInt()];
+                data.readFully(bytes);
+                classes.put(name, bytes);
+            }
+            return new SubmissionCompiler.Result(success, classes, errors);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // A corrupt entry is a miss; it is overwritten after compiling.
+            return null;
+        }
+    }
+
+    /**
+     * Store a compilation.
+     */
+    void put(String key, SubmissionCompiler.Result result) throws IOException {
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(MAGIC);
+                data.writeBoolean(result.succeeded());
+                GradeCache.writeString(data, result.getErrors());
+                data.writeInt(result.getClasses().size());
+                for (Map.Entry<String, byte[]> e : result.getClasses().entrySet()) {
+                    data.writeUTF(e.getKey());
+                    data.writeInt(e.getValue().length);
+                    data.write(e.getValue());
+                }
+                data.flush();
+            }
+            try {
+                Files.move(tmp, dir.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, dir.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
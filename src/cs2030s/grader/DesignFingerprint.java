@@ -0,0 +1,200 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact structural fingerprint of a submission's design, for spotting
+ * near-identical submissions in a cohort (see SimilarityIndex).
+ * <p>
+ * The design is the set of shingles read from the class files: each
+ * class with its modifiers and superclass, each interface it implements,
+ * and each field, method and constructor with its modifiers and generic
+ * type, once with its name and once without (so that renaming members
+ * alone does not hide a copy).  Synthetic classes and members are left
+ * out, as is the lab's CheckDesign.
+ * <p>
+ * The fingerprint is a MinHash of that set: for each of HASHES seeded
+ * hash functions, the minimum hash over all shingles.  The fraction of
+ * positions at which two fingerprints agree estimates the Jaccard
+ * similarity of the two shingle sets, with a standard error of at most
+ * 1/(2 sqrt(HASHES)), about 0.04.  Fingerprints are deterministic, so
+ * they can be cached with the results of a submission.
+ */
+public final class DesignFingerprint {
+    /**
+     * Number of hash functions, i.e. the length of a fingerprint.
+     */
+    public static final int HASHES = 128;
+
+    private static final int SYNTHETIC = 0x1000;
+    private static final int BRIDGE = 0x0040;
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        long seed = 0x4b454c4153L;
+        for (int i = 0; i < HASHES; i++) {
+            seed += 0x9e3779b97f4a7c15L;
+            SEEDS[i] = mix(seed);
+        }
+    }
+
+    private final long[] minHash;
+    private final int shingles;
+
+    private DesignFingerprint(long[] minHash, int shingles) {
+        this.minHash = minHash;
+        this.shingles = shingles;
+    }
+
+    /**
+     * Fingerprint the compiled classes of a submission.
+     *
+     * @param classes Map of binary class name to class file bytes.
+     * @return The fingerprint.
+     * @throws IOException Thrown if a class file is invalid.
+     */
+    public static DesignFingerprint of(Map<String, byte[]> classes) throws IOException {
+        Set<String> shingles = new HashSet<>();
+        for (Map.Entry<String, byte[]> e : classes.entrySet()) {
+            String name = e.getKey();
+            if (name.equals(GradingEngine.CHECKER) || name.startsWith(GradingEngine.CHECKER + "$")) {
+                continue;
+            }
+            addShingles(ClassFile.read(e.getValue()), shingles);
+        }
+
+        long[] minHash = new long[HASHES];
+        Arrays.fill(minHash, Long.MAX_VALUE);
+        for (String s : shingles) {
+            long h = hash(s);
+            for (int i = 0; i < HASHES; i++) {
+                minHash[i] = Math.min(minHash[i], mix(h ^ SEEDS[i]));
+            }
+        }
+        return new DesignFingerprint(minHash, shingles.size());
+    }
+
+    /**
+     * Restore a fingerprint, e.g. one read from a GradeCache.
+     *
+     * @param minHash The values of toArray().
+     * @param shingles The value of getShingleCount().
+     * @return The fingerprint.
+     */
+    static DesignFingerprint of(long[] minHash, int shingles) {
+        if (minHash.length != HASHES) {
+            throw new IllegalArgumentException("expected " + HASHES + " hashes, got " + minHash.length);
+        }
+        return new DesignFingerprint(minHash.clone(), shingles);
+    }
+
+    private static void addShingles(ClassFile cf, Set<String> shingles) {
+        if ((cf.getAccess() & SYNTHETIC) != 0) {
+            return;
+        }
+        String c = cf.getName();
+        int classMods = cf.getAccess() & (Modifier.classModifiers() | Modifier.INTERFACE);
+        shingles.add(c + " class " + Modifier.toString(classMods) + " extends " + cf.getSuperName());
+        for (String i : cf.getInterfaces()) {
+            shingles.add(c + " implements " + i);
+        }
+        for (ClassFile.Member f : cf.getFields()) {
+            if ((f.getAccess() & SYNTHETIC) == 0) {
+                String shape = c + " field " + Modifier.toString(f.getAccess() & Modifier.fieldModifiers())
+                    + " " + typeOf(f);
+                shingles.add(shape);
+                shingles.add(shape + " " + f.getName());
+            }
+        }
+        for (ClassFile.Member m : cf.getMethods()) {
+            if ((m.getAccess() & (SYNTHETIC | BRIDGE)) == 0 && !m.getName().equals("<clinit>")) {
+                String shape = c + " method " + Modifier.toString(m.getAccess() & Modifier.methodModifiers())
+                    + " " + typeOf(m);
+                shingles.add(shape);
+                shingles.add(shape + " " + m.getName());
+            }
+        }
+    }
+
+    /**
+     * The generic type of a field, or the generic descriptor of a method.
+     */
+    private static String typeOf(ClassFile.Member m) {
+        return m.getSignature() != null ? m.getSignature() : m.getDescriptor();
+    }
+
+    /**
+     * Estimate the Jaccard similarity of the designs of two submissions.
+     *
+     * @param other The other fingerprint.
+     * @return A number between 0 (nothing in common) and 1 (identical).
+     */
+    public double similarity(DesignFingerprint other) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (minHash[i] == other.minHash[i]) {
+                same++;
+            }
+        }
+        return same / (double) HASHES;
+    }
+
+    /**
+     * Hash a band of the fingerprint, rows [from, to), for LSH.
+     */
+    long band(int from, int to) {
+        long h = from;
+        for (int i = from; i < to; i++) {
+            h = mix(h * 31 + minHash[i]);
+        }
+        return h;
+    }
+
+    /**
+     * Get the number of distinct shingles of the design.
+     * @return Shingle count; 0 if the submission has no classes
+     */
+    public int getShingleCount() {
+        return shingles;
+    }
+
+    /**
+     * Get the MinHash values.
+     * @return A copy of the HASHES values
+     */
+    public long[] toArray() {
+        return minHash.clone();
+    }
+
+    // 64-bit FNV-1a.
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // The finalizer of SplitMix64, which spreads every input bit.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DesignFingerprint && Arrays.equals(minHash, ((DesignFingerprint) o).minHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(minHash);
+    }
+}
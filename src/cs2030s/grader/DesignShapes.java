@@ -0,0 +1,125 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The results of a RuleSet per design shape, shared by every submission
+ * of a batch with that shape.
+ * <p>
+ * Most students converge on a handful of designs.  The shape of a
+ * submission is a SHA-256 of the canonical form of its class files:
+ * for each class, in name order, its access flags, name, superclass,
+ * interfaces and generic signature, then its fields and its methods in
+ * name order, each with access flags, descriptor, generic signature and
+ * constant value.  This is everything a rule can observe through Kelas,
+ * and nothing else: bodies, parameter names, line numbers and source
+ * formatting do not count.  Nested classes are compared by their whole
+ * class files, since their modifiers live in an attribute of the outer
+ * class, and so are all classes if the rules read bytecode (see
+ * RuleSet.readsBytecode).
+ * <p>
+ * The engine evaluates the rules for the first submission of a shape
+ * and replays the results for the others, skipping their class loading
+ * and sandbox.  Two workers that reach a new shape at the same time may
+ * both evaluate it; either result may be kept, as they are the same.
+ */
+public class DesignShapes {
+    private final Map<String, GradeCache.Entry> shapes = new ConcurrentHashMap<>();
+    private final AtomicInteger submissions = new AtomicInteger();
+    private final AtomicInteger reused = new AtomicInteger();
+
+    /**
+     * Compute the shape of a compiled submission.
+     *
+     * @param classes Map of binary class name to class file bytes.
+     * @param bytecode Whether the code of the classes is part of the shape.
+     * @return The shape, as a hex string.
+     * @throws IOException Thrown if a class file is invalid.
+     */
+    static String key(Map<String, byte[]> classes, boolean bytecode) throws IOException {
+        MessageDigest md = GradeCache.sha256();
+        for (Map.Entry<String, byte[]> e : new TreeMap<>(classes).entrySet()) {
+            GradeCache.update(md, e.getKey());
+            if (bytecode || e.getKey().contains("$")) {
+                GradeCache.update(md, String.valueOf(e.getValue().length));
+                md.update(e.getValue());
+            } else {
+                canonical(md, ClassFile.read(e.getValue()));
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static void canonical(MessageDigest md, ClassFile cf) {
+        GradeCache.update(md, cf.getAccess() + " " + cf.getSuperName() + " " + cf.getInterfaces()
+                + " " + cf.getSignature());
+        for (List<ClassFile.Member> members : List.of(cf.getFields(), cf.getMethods())) {
+            List<ClassFile.Member> sorted = new ArrayList<>(members);
+            sorted.sort(Comparator.comparing(ClassFile.Member::getName)
+                    .thenComparing(ClassFile.Member::getDescriptor));
+            GradeCache.update(md, String.valueOf(sorted.size()));
+            for (ClassFile.Member m : sorted) {
+                Object value = m.getConstantValue();
+                GradeCache.update(md, m.getAccess() + " " + m.getName() + " " + m.getDescriptor()
+                        + " " + m.getSignature()
+                        + (value == null ? "" : " " + value.getClass().getSimpleName() + ":" + value));
+            }
+        }
+    }
+
+    /**
+     * Look up the results of a shape, counting the submission.
+     *
+     * @param key The shape.
+     * @return The results, or null if no submission of this shape has
+     *     been checked yet.
+     */
+    GradeCache.Entry get(String key) {
+        submissions.incrementAndGet();
+        GradeCache.Entry entry = shapes.get(key);
+        if (entry != null) {
+            reused.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Record the results of a shape: the output of the checks and the
+     * CheckResults they emitted.
+     */
+    void put(String key, GradeCache.Entry entry) {
+        shapes.putIfAbsent(key, entry);
+    }
+
+    /**
+     * Get the number of distinct shapes checked so far.
+     * @return Count of shapes
+     */
+    public int size() {
+        return shapes.size();
+    }
+
+    /**
+     * Get the number of submissions whose results were those of an
+     * earlier submission of the same shape.
+     * @return Count of submissions
+     */
+    public int reusedCount() {
+        return reused.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Design shapes: %d submissions, %d distinct, %d checked by reusing a shape",
+                submissions.get(), size(), reusedCount());
+    }
+}
@@ -0,0 +1,311 @@
+package cs2030s.grader;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of grading results, so that a rerun only compiles
+ * and checks the submissions that changed.
+ * <p>
+ * An entry is keyed by the SHA-256 of the grader's own class files
+ * (see graderDigest), the Java version, the checker (CheckDesign.java
+ * or rule spec) and the names and contents of the submission's .java
+ * files.  It holds whether the submission compiled, its output, the
+ * CheckResults it produced and the DesignFingerprint of the submission.
+ * Changing any source, the checker or any class of the grader changes
+ * the key, so stale entries are never read; they are simply left
+ * behind.
+ * <p>
+ * Each entry is one file in the cache folder, written to a temporary
+ * file and then moved into place, so a cache is safe to share between
+ * grading threads and interrupted runs never leave a partial entry.
+ * <p>
+ * A hit on an entry stored by this cache object is a duplicate of a
+ * submission graded earlier in the same run, not an unchanged one; the
+ * two are counted separately.
+ */
+public class GradeCache {
+    private static final int MAGIC = 0x4b454c41;
+    private static byte[] graderDigest;
+
+    private final Path dir;
+    private final byte[] prefix;
+    // Keys stored since this cache was opened, i.e. during this run.
+    private final Set<String> stored = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+
+    /**
+     * Construct a cache.
+     *
+     * @param dir The folder holding the entries; created if missing.
+     * @param checker The checker file (CheckDesign.java or a rule spec)
+     *     whose contents are part of every key.
+     */
+    public GradeCache(Path dir, Path checker) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        MessageDigest md = sha256();
+        md.update(graderDigest());
+        update(md, System.getProperty("java.version"));
+        update(md, checker.getFileName().toString());
+        md.update(Files.readAllBytes(checker));
+        this.prefix = md.digest();
+    }
+
+    /**
+     * Compute the key of a submission.
+     *
+     * @param sources The submission's .java files, in a stable order.
+     * @return The key, as a hex string.
+     */
+    String key(Collection<Path> sources) throws IOException {
+        MessageDigest md = sha256();
+        md.update(prefix);
+        for (Path source : sources) {
+            update(md, source.getFileName().toString());
+            byte[] content = Files.readAllBytes(source);
+            update(md, String.valueOf(content.length));
+            md.update(content);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * A cached grading outcome.
+     */
+    static class Entry {
+        final boolean compiled;
+        final String output;
+        final List<CheckResult> results;
+        final DesignFingerprint fingerprint;
+
+        Entry(boolean compiled, String output, List<CheckResult> results, DesignFingerprint fingerprint) {
+            this.compiled = compiled;
+            this.output = output;
+            this.results = results;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Look up an entry.
+     *
+     * @param key The submission's key.
+     * @return The entry, or null if there is none or it is unreadable.
+     */
+    Entry get(String key) {
+        try (InputStream in = Files.newInputStream(dir.resolve(key))) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) {
+                return null;
+            }
+            boolean compiled = data.readBoolean();
+            String output = readString(data);
+            int n = data.readInt();
+            List<CheckResult> results = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                String rule = readString(data);
+                boolean passed = data.readBoolean();
+                String message = readString(data);
+                long elapsed = data.readLong();
+                results.add(new CheckResult(null, null, rule, passed, message, elapsed));
+            }
+            DesignFingerprint fingerprint = null;
+            int shingles = data.readInt();
+            if (shingles >= 0) {
+                long[] minHash = new long[DesignFingerprint.HASHES];
+                for (int i = 0; i < minHash.length; i++) {
+                    minHash[i] = data.readLong();
+                }
+                fingerprint = DesignFingerprint.of(minHash, shingles);
+            }
+            (stored.contains(key) ? duplicates : unchanged).incrementAndGet();
+            return new Entry(compiled, output, results, fingerprint);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // A corrupt entry is a miss; it is overwritten after grading.
+            return null;
+        }
+    }
+
+    /**
+     * Store an entry.  The submission and lab of the results are not
+     * stored, as identical sources may be shared by several submissions.
+     */
+    void put(String key, Entry entry) throws IOException {
+        Path tmp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(MAGIC);
+                data.writeBoolean(entry.compiled);
+                writeString(data, entry.output);
+                data.writeInt(entry.results.size());
+                for (CheckResult r : entry.results) {
+                    writeString(data, r.getRule());
+                    data.writeBoolean(r.passed());
+                    writeString(data, r.getMessage());
+                    data.writeLong(r.getElapsedNanos());
+                }
+                if (entry.fingerprint == null) {
+                    data.writeInt(-1);
+                } else {
+                    data.writeInt(entry.fingerprint.getShingleCount());
+                    for (long h : entry.fingerprint.toArray()) {
+                        data.writeLong(h);
+                    }
+                }
+                data.flush();
+            }
+            try {
+                Files.move(tmp, dir.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, dir.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+            stored.add(key);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Get the number of hits on entries stored before this run.
+     * @return The number of submissions unchanged since an earlier run
+     */
+    public int unchangedCount() {
+        return unchanged.get();
+    }
+
+    /**
+     * Get the number of hits on entries stored during this run.
+     * @return The number of submissions identical to one graded earlier
+     *     in this run
+     */
+    public int duplicateCount() {
+        return duplicates.get();
+    }
+
+    // Strings are length-prefixed UTF-8, as compiler errors can exceed
+    // the 64KB limit of writeUTF.
+    static void writeString(DataOutputStream data, String s) throws IOException {
+        if (s == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    static String readString(DataInputStream data) throws IOException {
+        int n = data.readInt();
+        if (n < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[n];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the SHA-256 of the class files of the grader itself, i.e. of
+     * the folder or jar it was loaded from, taken once per run.  Keys
+     * that include it change with any change to Kelas, the rule DSL or
+     * the engine, without a version to bump by hand.
+     *
+     * @return The digest; random if the grader's location is unknown,
+     *     so that nothing cached is ever trusted.
+     */
+    static synchronized byte[] graderDigest() {
+        if (graderDigest == null) {
+            CodeSource source = GradeCache.class.getProtectionDomain().getCodeSource();
+            try {
+                graderDigest = digestOf(Path.of(source.getLocation().toURI()));
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                graderDigest = new byte[32];
+                new SecureRandom().nextBytes(graderDigest);
+            }
+        }
+        return graderDigest;
+    }
+
+    /**
+     * Get the SHA-256 of the names and contents of the class files in a
+     * classpath entry: a folder, searched recursively, or a jar.
+     *
+     * @param location The folder or jar.
+     * @return The digest; that of nothing if the location does not exist.
+     */
+    static byte[] digestOf(Path location) throws IOException {
+        MessageDigest md = sha256();
+        if (Files.isDirectory(location)) {
+            List<Path> files;
+            try (Stream<Path> s = Files.walk(location)) {
+                files = s.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                byte[] content = Files.readAllBytes(file);
+                update(md, location.relativize(file).toString());
+                update(md, String.valueOf(content.length));
+                md.update(content);
+            }
+        } else if (Files.isRegularFile(location)) {
+            try (JarFile jar = new JarFile(location.toFile())) {
+                List<JarEntry> entries = jar.stream()
+                    .filter(e -> e.getName().endsWith(".class"))
+                    .sorted(Comparator.comparing(JarEntry::getName))
+                    .collect(Collectors.toList());
+                for (JarEntry e : entries) {
+                    try (InputStream in = jar.getInputStream(e)) {
+                        byte[] content = in.readAllBytes();
+                        update(md, e.getName());
+                        update(md, String.valueOf(content.length));
+                        md.update(content);
+                    }
+                }
+            }
+        }
+        return md.digest();
+    }
+
+    static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
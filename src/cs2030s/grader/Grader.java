@@ -0,0 +1,202 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Entry point that grades every submission of a lab in one JVM.
+ * <p>
+ * Usage: java cs2030s.grader.Grader [-j threads] [--report file] [--rules spec]
+ * [--cache dir | --no-cache] [--class-store dir] [--cpu-ms n] [--max-alloc-mb n]
+ * [--similarity t] [--no-shapes] &lt;lab-folder&gt;
+ * <p>
+ * Submissions are graded on a fixed pool of worker threads (one per
+ * core by default).  The report is printed in submission order, in the
+ * same format as check_all.sh, and each submission's checker output is
+ * also written to design-bug.txt in the submission folder.
+ * <p>
+ * With --report, every CheckResult is also streamed to the given file as
+ * JSON Lines, or as CSV if the file name ends with ".csv".
+ * <p>
+ * With --rules, submissions are checked against the given RuleSet spec
+ * instead of the lab's CheckDesign.java.
+ * <p>
+ * Results are cached in the lab's .kelas-cache folder (or the folder
+ * given by --cache), keyed by the contents of each submission and of
+ * the checker, so a rerun only grades submissions that changed.
+ * Compiled submissions are likewise kept in a ClassStore, in the
+ * cache's classes folder or the folder given by --class-store, which may
+ * be shared between labs.  --no-cache grades everything and leaves both
+ * untouched.
+ * <p>
+ * The checks of each submission run in a Sandbox that cancels them
+ * after --cpu-ms milliseconds of CPU time (10000 by default) or once
+ * they have allocated --max-alloc-mb megabytes (1024 by default); 0
+ * disables a limit.
+ * <p>
+ * With --rules, the rules are evaluated once per DesignShapes shape and
+ * the results shared by the submissions of that shape, unless
+ * --no-shapes is given.
+ * <p>
+ * With --similarity, the DesignFingerprints of the submissions are put
+ * in a SimilarityIndex and the pairs of submissions whose designs have
+ * an estimated similarity of at least t (between 0 and 1) are listed
+ * after the report, for plagiarism screening.
+ */
+public class Grader {
+    static final String REPORT = "design-bug.txt";
+    static final String CACHE = ".kelas-cache";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path lab = null;
+        Path report = null;
+        Path spec = null;
+        Path cacheDir = null;
+        Path storeDir = null;
+        boolean useCache = true;
+        long cpuMillis = 10_000;
+        long maxAllocMegabytes = 1024;
+        SimilarityIndex similar = null;
+        boolean useShapes = true;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--report") && i + 1 < args.length) {
+                report = Path.of(args[++i]);
+            } else if (args[i].equals("--rules") && i + 1 < args.length) {
+                spec = Path.of(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDir = Path.of(args[++i]);
+            } else if (args[i].equals("--class-store") && i + 1 < args.length) {
+                storeDir = Path.of(args[++i]);
+            } else if (args[i].equals("--cpu-ms") && i + 1 < args.length) {
+                cpuMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--max-alloc-mb") && i + 1 < args.length) {
+                maxAllocMegabytes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--similarity") && i + 1 < args.length) {
+                similar = new SimilarityIndex(Double.parseDouble(args[++i]));
+            } else if (args[i].equals("--no-shapes")) {
+                useShapes = false;
+            } else if (args[i].equals("--no-cache")) {
+                useCache = false;
+            } else if (lab == null && !args[i].startsWith("-")) {
+                lab = Path.of(args[i]);
+            } else {
+                usage();
+            }
+        }
+        if (lab == null || threads < 1) {
+            usage();
+        }
+
+        RuleSet rules = spec == null ? null : RuleSet.parse(spec);
+        if (rules != null) {
+            System.err.println("Rules: " + rules.describePlan());
+        }
+        OutputCapture.install();
+        List<Path> submissions = GradingEngine.listSubmissions(lab);
+        long start = System.nanoTime();
+        GradeCache cache = null;
+        LoaderPool loaders = null;
+        DesignShapes shapes = rules != null && useShapes ? new DesignShapes() : null;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (ResultSink sink = report == null ? null : ResultSink.open(report)) {
+            GradingEngine engine = rules == null
+                ? new GradingEngine(lab, sink)
+                : new GradingEngine(lab.getFileName().toString(), rules, sink);
+            engine = engine.withSandbox(new Sandbox(cpuMillis, maxAllocMegabytes * 1024 * 1024));
+            if (shapes != null) {
+                engine = engine.withShapes(shapes);
+            }
+            if (useCache) {
+                Path checker = spec == null ? lab.resolve(GradingEngine.CHECKER + ".java") : spec;
+                Path dir = cacheDir == null ? lab.resolve(CACHE) : cacheDir;
+                cache = new GradeCache(dir, checker);
+                engine = engine.withCache(cache)
+                    .withClassStore(new ClassStore(storeDir == null ? dir.resolve("classes") : storeDir));
+            }
+            GradingEngine grader = engine;
+            loaders = engine.getLoaders();
+
+            List<Future<GradingResult>> results = new ArrayList<>();
+            for (Path submission : submissions) {
+                results.add(pool.submit(() -> gradeAndSave(grader, submission)));
+            }
+            // Futures are drained in submission order, so the report is
+            // ordered regardless of which worker finishes first.
+            for (Future<GradingResult> result : results) {
+                GradingResult r = result.get();
+                if (similar != null && r.getFingerprint() != null) {
+                    similar.add(r.getSubmission(), r.getFingerprint());
+                }
+                print(r);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Grading failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        if (similar != null) {
+            printSimilar(similar);
+        }
+        summarize(submissions.size(), System.nanoTime() - start, threads);
+        System.err.println(loaders);
+        if (shapes != null) {
+            System.err.println(shapes);
+        }
+        if (cache != null) {
+            System.err.printf("%d of %d submissions unchanged since the last run and %d duplicates of"
+                    + " submissions graded in this run, results read from cache\n",
+                    cache.unchangedCount(), submissions.size(), cache.duplicateCount());
+        }
+    }
+
+    private static GradingResult gradeAndSave(GradingEngine engine, Path submission) {
+        try {
+            GradingResult result = engine.grade(submission);
+            Files.writeString(submission.resolve(REPORT), result.getOutput());
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void print(GradingResult result) {
+        System.out.printf("=============================================\n");
+        System.out.printf("Running design check on: %s\n", result.getSubmission());
+        System.out.print(result.getOutput());
+        System.out.printf("=============================================\n\n");
+    }
+
+    static void printSimilar(SimilarityIndex index) {
+        List<SimilarityIndex.Pair> pairs = index.similarPairs();
+        System.out.printf("Similar designs: %d pairs\n", pairs.size());
+        for (SimilarityIndex.Pair pair : pairs) {
+            System.out.printf("  %s\n", pair);
+        }
+        System.err.println(index);
+    }
+
+    static void summarize(int count, long elapsedNanos, int threads) {
+        double seconds = elapsedNanos / 1e9;
+        System.err.printf("Graded %d submissions in %.2f s on %d threads (%.1f submissions/s)\n",
+                count, seconds, threads, seconds > 0 ? count / seconds : 0.0);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java cs2030s.grader.Grader [-j threads] [--report file] [--rules spec]"
+                + " [--cache dir | --no-cache] [--class-store dir] [--cpu-ms n] [--max-alloc-mb n]"
+                + " [--similarity t] [--no-shapes] <lab-folder>");
+        System.exit(2);
+    }
+}
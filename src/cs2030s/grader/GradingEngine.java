@@ -0,0 +1,345 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Grades submissions inside the running JVM.
+ * <p>
+ * Each submission is compiled in memory together with the lab's
+ * CheckDesign.java, loaded by its own SubmissionClassLoader and checked
+ * by calling CheckDesign.main.  This replaces the javac and java
+ * processes that check.sh forks per student.
+ * <p>
+ * Alternatively the engine evaluates a RuleSet parsed from a spec file,
+ * in which case only the submission itself is compiled.
+ * <p>
+ * With a GradeCache, a submission whose sources are unchanged since it
+ * was last graded is neither compiled nor checked: its output is read
+ * from the cache and its CheckResults are replayed to the sink, with an
+ * elapsed time of 0.  With a
+ * ClassStore, sources compiled before are not compiled again even when
+ * the checks must be rerun.
+ * <p>
+ * The checks of each submission run in a Sandbox, on a thread of their
+ * own, so that they can be cancelled.  Their loader is released from
+ * the engine's LoaderPool as soon as they finish.  A submission or
+ * checker that could call System.exit is not run at all.
+ * <p>
+ * Every compiled submission is also given a DesignFingerprint, cached
+ * with its results, for SimilarityIndex.
+ * <p>
+ * With DesignShapes, a RuleSet is evaluated once per design shape and
+ * its results are replayed, with an elapsed time of 0, for every other
+ * submission of that shape.
+ * A CheckDesign may run submission code, so its results are never
+ * shared.
+ */
+public class GradingEngine {
+    static final String CHECKER = "CheckDesign";
+    private static final Sandbox UNLIMITED = new Sandbox(0, 0);
+
+    private final String lab;
+    private final Path checker;
+    private final RuleSet rules;
+    private final SubmissionCompiler compiler;
+    private final ResultSink sink;
+    private final GradeCache cache;
+    private final Sandbox sandbox;
+    private final LoaderPool loaders;
+    private final DesignShapes shapes;
+
+    /**
+     * Construct an engine for a lab.
+     *
+     * @param lab The lab folder, which must contain CheckDesign.java.
+     */
+    public GradingEngine(Path lab) {
+        this(lab, null);
+    }
+
+    /**
+     * Construct an engine for a lab that reports results to a sink.
+     *
+     * @param lab The lab folder, which must contain CheckDesign.java.
+     * @param sink Where CheckResults are written; may be null.
+     */
+    public GradingEngine(Path lab, ResultSink sink) {
+        this(lab.getFileName().toString(), lab.resolve(CHECKER + ".java"), new SubmissionCompiler(), sink);
+    }
+
+    /**
+     * Construct an engine that checks submissions against a rule set.
+     *
+     * @param lab The lab name used in results.
+     * @param rules The parsed rules.
+     * @param sink Where CheckResults are written; may be null.
+     */
+    public GradingEngine(String lab, RuleSet rules, ResultSink sink) {
+        this(lab, null, rules, new SubmissionCompiler(), sink, null, UNLIMITED,
+                new LoaderPool(GradingEngine.class.getClassLoader()), null);
+    }
+
+    public GradingEngine(String lab, Path checker, SubmissionCompiler compiler, ResultSink sink) {
+        this(lab, checker, null, compiler, sink, null, UNLIMITED,
+                new LoaderPool(GradingEngine.class.getClassLoader()), null);
+    }
+
+    private GradingEngine(String lab, Path checker, RuleSet rules, SubmissionCompiler compiler,
+            ResultSink sink, GradeCache cache, Sandbox sandbox, LoaderPool loaders, DesignShapes shapes) {
+        this.lab = lab;
+        this.checker = checker;
+        this.rules = rules;
+        this.compiler = compiler;
+        this.sink = sink;
+        this.cache = cache;
+        this.sandbox = sandbox;
+        this.loaders = loaders;
+        this.shapes = shapes;
+    }
+
+    /**
+     * Get an engine like this one that consults a cache before grading.
+     * The cache must have been created for the same checker or spec.
+     *
+     * @param cache The cache.
+     * @return The new engine.
+     */
+    public GradingEngine withCache(GradeCache cache) {
+        return new GradingEngine(lab, checker, rules, compiler, sink, cache, sandbox, loaders, shapes);
+    }
+
+    /**
+     * Get an engine like this one whose compiler reuses the bytecode in
+     * a ClassStore.
+     *
+     * @param store The store.
+     * @return The new engine.
+     */
+    public GradingEngine withClassStore(ClassStore store) {
+        return new GradingEngine(lab, checker, rules, compiler.withStore(store), sink, cache, sandbox,
+                loaders, shapes);
+    }
+
+    /**
+     * Get an engine like this one that runs the checks of each
+     * submission in the given sandbox.
+     *
+     * @param sandbox The sandbox.
+     * @return The new engine.
+     */
+    public GradingEngine withSandbox(Sandbox sandbox) {
+        return new GradingEngine(lab, checker, rules, compiler, sink, cache, sandbox, loaders, shapes);
+    }
+
+    /**
+     * Get an engine like this one that shares the results of its rules
+     * among submissions of the same design shape.  Has no effect on an
+     * engine that runs a CheckDesign.
+     *
+     * @param shapes The shapes seen so far, usually empty.
+     * @return The new engine.
+     */
+    public GradingEngine withShapes(DesignShapes shapes) {
+        return new GradingEngine(lab, checker, rules, compiler, sink, cache, sandbox, loaders,
+                rules == null ? null : shapes);
+    }
+
+    /**
+     * List the submission folders of a lab, in name order.
+     *
+     * @param lab The lab folder.
+     * @return The sub-folders of the lab, except hidden ones such as the
+     *     grade cache.
+     */
+    public static List<Path> listSubmissions(Path lab) throws IOException {
+        try (Stream<Path> s = Files.list(lab)) {
+            return s.filter(Files::isDirectory)
+                .filter(p -> !p.getFileName().toString().startsWith("."))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Compile and check one submission.
+     *
+     * @param submission The submission folder.
+     * @return The grading result.
+     */
+    public GradingResult grade(Path submission) throws IOException {
+        long start = System.nanoTime();
+        String id = submission.getFileName().toString();
+        List<Path> sources = sourcesOf(submission);
+        String key = cache == null ? null : cache.key(sources);
+        GradeCache.Entry entry = key == null ? null : cache.get(key);
+
+        Report.bind(id, lab, sink, (cache != null && entry == null) || shapes != null);
+        GradingResult result;
+        List<CheckResult> results;
+        try {
+            if (entry != null) {
+                // Like results reused from a design shape, replayed
+                // results took no time to produce.
+                for (CheckResult r : entry.results) {
+                    Report.emit(r.getRule(), r.passed(), r.getMessage(), 0);
+                }
+                return new GradingResult(id, entry.compiled, entry.output, System.nanoTime() - start, true,
+                        entry.fingerprint);
+            }
+            result = grade(id, sources, start);
+        } finally {
+            results = Report.unbind();
+        }
+        // Resource limits depend on the load of the machine, so a
+        // cancelled submission is graded again next time.
+        if (key != null && results.stream().noneMatch(r -> r.getRule().equals(Sandbox.RULE))) {
+            cache.put(key, new GradeCache.Entry(result.compiled(), result.getOutput(), results,
+                        result.getFingerprint()));
+        }
+        return result;
+    }
+
+    private GradingResult grade(String id, List<Path> sources, long start) {
+        if (checker != null) {
+            sources.add(checker);
+        }
+        SubmissionCompiler.Result compiled = compiler.compile(sources);
+        Report.emit("compile", compiled.succeeded(),
+                compiled.succeeded() ? "Check passed" : compiled.getErrors(), System.nanoTime() - start);
+        if (!compiled.succeeded()) {
+            return new GradingResult(id, false, compiled.getErrors(), System.nanoTime() - start);
+        }
+
+        DesignFingerprint fingerprint = fingerprintOf(compiled);
+        // Refused before the shape lookup: a submission that can exit
+        // must not inherit the results of a clean one of the same shape.
+        String exit = Sandbox.exitViolation(compiled.getClasses());
+        if (exit != null) {
+            Report.emit(Sandbox.RULE, false, exit, 0);
+            return new GradingResult(id, true, exit + "\n", System.nanoTime() - start, false, fingerprint);
+        }
+
+        String shape = shapeOf(compiled);
+        GradeCache.Entry same = shape == null ? null : shapes.get(shape);
+        if (same != null) {
+            // No time was spent checking this submission; the elapsed
+            // time of each result belongs to the submission it came from.
+            for (CheckResult r : same.results) {
+                Report.emit(r.getRule(), r.passed(), r.getMessage(), 0);
+            }
+            return new GradingResult(id, true, same.output, System.nanoTime() - start, false, fingerprint);
+        }
+
+        SubmissionClassLoader loader = loaders.open(compiled.getClasses());
+        String output;
+        try {
+            output = run(id, loader);
+        } finally {
+            loaders.release(loader);
+        }
+        if (shape != null) {
+            List<CheckResult> results = Report.recorded();
+            // The compile result belongs to each submission.
+            results.removeIf(r -> r.getRule().equals("compile"));
+            if (results.stream().noneMatch(r -> r.getRule().equals(Sandbox.RULE))) {
+                shapes.put(shape, new GradeCache.Entry(true, output, results, null));
+            }
+        }
+        return new GradingResult(id, true, output, System.nanoTime() - start, false, fingerprint);
+    }
+
+    private String shapeOf(SubmissionCompiler.Result compiled) {
+        if (shapes == null) {
+            return null;
+        }
+        try {
+            return DesignShapes.key(compiled.getClasses(), rules.readsBytecode());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static DesignFingerprint fingerprintOf(SubmissionCompiler.Result compiled) {
+        try {
+            return DesignFingerprint.of(compiled.getClasses());
+        } catch (IOException e) {
+            // javac wrote the class files, so this does not happen.
+            return null;
+        }
+    }
+
+    /**
+     * Get the pool of the loaders of the submissions graded so far.
+     * @return The pool, shared by engines derived with the with methods
+     */
+    public LoaderPool getLoaders() {
+        return loaders;
+    }
+
+    private static List<Path> sourcesOf(Path submission) throws IOException {
+        try (Stream<Path> s = Files.list(submission)) {
+            return s.filter(p -> p.toString().endsWith(".java"))
+                .filter(p -> !p.getFileName().toString().equals(CHECKER + ".java"))
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Run the checks in the sandbox, with the submission's loader as the
+     * context class loader so that Kelas resolves class names against it.
+     */
+    private String run(String id, SubmissionClassLoader loader) {
+        return sandbox.run(id, loader, () -> {
+            try {
+                if (rules != null) {
+                    for (Check check : rules.evaluate()) {
+                        if (!check.passed()) {
+                            System.out.println(check.getMessage());
+                        }
+                    }
+                } else {
+                    runChecker(loader);
+                }
+            } catch (ThreadDeath e) {
+                throw e;
+            } catch (RuntimeException | Error e) {
+                // e.g. an exception thrown by a student's static initialiser
+                String trace = stackTraceOf(e);
+                Report.emit("run", false, trace, 0);
+                System.out.print(trace);
+            }
+        });
+    }
+
+    private static void runChecker(SubmissionClassLoader loader) {
+        try {
+            Method main = loader.loadClass(CHECKER).getDeclaredMethod("main", String[].class);
+            main.setAccessible(true);
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            String trace = stackTraceOf(e.getCause());
+            Report.emit("run", false, trace, 0);
+            System.out.print(trace);
+        } catch (ReflectiveOperationException e) {
+            Report.emit("run", false, e.toString(), 0);
+            System.out.println("Cannot run " + CHECKER + ": " + e);
+        }
+    }
+
+    private static String stackTraceOf(Throwable t) {
+        StringWriter sw = new StringWriter();
+        t.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+}
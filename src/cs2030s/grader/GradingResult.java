@@ -0,0 +1,76 @@
+package cs2030s.grader;
+
+/**
+ * The outcome of grading one submission: whether it compiled and what
+ * the checker printed.
+ */
+public class GradingResult {
+    private final String submission;
+    private final boolean compiled;
+    private final String output;
+    private final long elapsedNanos;
+    private final boolean cached;
+    private final DesignFingerprint fingerprint;
+
+    public GradingResult(String submission, boolean compiled, String output, long elapsedNanos) {
+        this(submission, compiled, output, elapsedNanos, false, null);
+    }
+
+    public GradingResult(String submission, boolean compiled, String output, long elapsedNanos,
+            boolean cached) {
+        this(submission, compiled, output, elapsedNanos, cached, null);
+    }
+
+    public GradingResult(String submission, boolean compiled, String output, long elapsedNanos,
+            boolean cached, DesignFingerprint fingerprint) {
+        this.submission = submission;
+        this.compiled = compiled;
+        this.output = output;
+        this.elapsedNanos = elapsedNanos;
+        this.cached = cached;
+        this.fingerprint = fingerprint;
+    }
+
+    public String getSubmission() {
+        return submission;
+    }
+
+    public boolean compiled() {
+        return compiled;
+    }
+
+    /**
+     * Get the checker's output, or the compilation errors if the
+     * submission did not compile.
+     * @return Output text
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Whether the result was read from a GradeCache instead of grading
+     * the submission.
+     * @return true if cached
+     */
+    public boolean cached() {
+        return cached;
+    }
+
+    /**
+     * Get the fingerprint of the submission's design.
+     * @return The fingerprint, or null if it did not compile
+     */
+    public DesignFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return submission + (compiled ? "" : " (compilation failed)");
+    }
+}
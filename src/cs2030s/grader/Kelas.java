@@ -1,10 +1,10 @@
 package cs2030s.grader;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 import java.util.function.Function;
 
 /**
@@ -18,15 +18,20 @@ import java.util.function.Function;
 public class Kelas {
     // c is the Java Class object we wrap around.
     private Class<?> c;
+    // Reflection data of c, shared by every Kelas of the same class.
+    private KelasMetadata metadata;
 
     /**
-     * Construct a Kelas object for the class with the given name.
+     * Construct a Kelas object for the class with the given name.  The
+     * class is not initialised, so its static initialiser only runs if a
+     * check reads a static field.
      *
      * @param className The name of the class.
      * @throws ClassNotFoundException Thrown if the className is not valid.
      */
     public Kelas(String className) throws ClassNotFoundException {
-      this.c = Class.forName(className);
+      this.c = Class.forName(className, false, KelasUtils.getClassLoader());
+      this.metadata = KelasMetadata.of(this.c);
     }
 
     /**
@@ -37,6 +42,7 @@ public class Kelas {
      */
     public Kelas(Class<?> c) {
         this.c = c;
+        this.metadata = KelasMetadata.of(c);
     }
 
     /**
@@ -45,7 +51,7 @@ public class Kelas {
      * @return true if it is an abstract class; false otherwise.
      */
     public boolean isAbstract() {
-        return Modifier.isAbstract(c.getModifiers());
+        return Modifier.isAbstract(metadata.getModifiers());
     }
 
     /**
@@ -62,7 +68,7 @@ public class Kelas {
      * @return KelasFields
      */
     public KelasFields getFields() {
-        return new KelasFields(Stream.of(this.c.getDeclaredFields()));
+        return new KelasFields(metadata.getFields(), metadata.getFieldModifiers(), 0, 0, null);
     }
 
     /**
@@ -70,7 +76,19 @@ public class Kelas {
      * @return KelasMethods
      */
     public KelasMethods getMethods() {
-        return new KelasMethods(Stream.of(this.c.getDeclaredMethods()));
+        return new KelasMethods(metadata.getMethods(), metadata.getMethodModifiers(), 0, 0, null);
+    }
+
+    /**
+     * Get the methods with a name, i.e. its overloads (and any bridge
+     * methods javac generated for it), looked up in the method index
+     * instead of filtering all methods.
+     * @param name Name of the methods
+     * @return KelasMethods
+     */
+    public KelasMethods getMethods(String name) {
+        MethodIndex index = MethodIndex.of(c);
+        return new KelasMethods(index.overloads(name), index.modifiers(name), 0, 0, null);
     }
 
     /**
@@ -78,33 +96,72 @@ public class Kelas {
      * @return KelasConstructors
      */
     public KelasConstructors getConstructors() {
-      return new KelasConstructors(Stream.of(this.c.getDeclaredConstructors()));
+      return new KelasConstructors(metadata.getConstructors(),
+          metadata.getConstructorModifiers(), 0, 0, null);
     }
 
+    /**
+     * Checks if this class directly extends parent.  An interface extends
+     * the interfaces listed in its extends clause.
+     *
+     * @return true if parent is the direct superclass (or a direct
+     *     superinterface) of this class; false otherwise, and for Object.
+     */
     public boolean doesExtend(Kelas parent) {
-        // Check if class has no inheritance
-        if (this.c.getSuperclass().equals(Object.class)) {
-            return false;
+        if (this.c.isInterface()) {
+            return metadata.getInterfaceSet().contains(parent.c);
         }
-
-        if (this.c.getSuperclass().equals(parent.c)) {
-            return true;
+        // Check if class has no inheritance (Object and primitives have
+        // no superclass at all)
+        Class<?> superclass = this.c.getSuperclass();
+        if (superclass == null || superclass.equals(Object.class)) {
+            return false;
         }
-        return false;
+        return superclass.equals(parent.c);
     }
 
+    /**
+     * Checks if this class directly implements parentInterface.
+     *
+     * @return true if parentInterface is listed in the implements clause
+     *     of this class; false otherwise.
+     */
     public boolean doesImplement(Kelas parentInterface) throws ClassNotFoundException {
-                // Check if class has no inheritance
-        if (this.c.getSuperclass().equals(Object.class)) {
-            return false;
-        }
+        return metadata.getInterfaceSet().contains(parentInterface.c);
+    }
 
-        for (Class<?> ifs1 : this.c.getInterfaces()) {
-            if (ifs1.equals(parentInterface.c)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Checks if this class extends parent, directly or through any number
+     * of intermediate classes.
+     *
+     * @return true if parent is a superclass of this class; false otherwise.
+     */
+    public boolean extendsTransitively(Kelas parent) {
+        return !parent.c.isInterface()
+            && AncestorIndex.of(c, parent.c).isAncestor(c, parent.c);
+    }
+
+    /**
+     * Checks if this type implements (or, for an interface, extends) the
+     * given interface, directly, through a superclass or through another
+     * interface.
+     *
+     * @return true if parentInterface is a supertype of this type; false otherwise.
+     */
+    public boolean implementsTransitively(Kelas parentInterface) {
+        return parentInterface.c.isInterface()
+            && AncestorIndex.of(c, parentInterface.c).isAncestor(c, parentInterface.c);
+    }
+
+    /**
+     * Return the most specific supertypes shared with another class, at
+     * any depth.  A common supertype that is itself a supertype of another
+     * common supertype is left out.  Object does not count.
+     *
+     * @return A list of Class objects.
+     */
+    public List<Class<?>> lowestCommonAncestors(Kelas that) {
+        return AncestorIndex.of(c, that.c).lowestCommonAncestors(c, that.c);
     }
 
     /**
@@ -118,7 +175,8 @@ public class Kelas {
 
         List<Class<?>> list = new ArrayList<>();
 
-        if (this.c.getSuperclass().equals(that.c.getSuperclass()) &&
+        // Interfaces have no superclass
+        if (this.c.getSuperclass() != null && this.c.getSuperclass().equals(that.c.getSuperclass()) &&
                 !this.c.getSuperclass().equals(Object.class)) {
             list.add(this.c.getSuperclass());
         }
@@ -129,25 +187,134 @@ public class Kelas {
     }
 
     public boolean commonParent(Kelas that) {
-        return this.c.getSuperclass().equals(that.c.getSuperclass());
+        return this.c.getSuperclass() != null && this.c.getSuperclass().equals(that.c.getSuperclass());
     }
 
     public List<Class<?>> getCommonInterfacesWith(Kelas that) {
         List<Class<?>> list = new ArrayList<>();
-        for (Class<?> ifs1 : this.c.getInterfaces()) {
-            for (Class<?> ifs2 : that.c.getInterfaces()) {
-                if (ifs1.equals(ifs2)) {
-                    list.add(ifs1);
-                }
+        for (Class<?> ifs1 : metadata.getInterfaces()) {
+            if (that.metadata.getInterfaceSet().contains(ifs1)) {
+                list.add(ifs1);
             }
         }
         return list;
     }
 
+    /**
+     * Return the classes of the submission that directly extend this class.
+     *
+     * @return A list of Class objects.
+     */
     public List<Class<?>> getSubclasses() throws ClassNotFoundException, java.io.IOException {
-        return KelasUtils.getClasses().stream()
-          .filter(c -> this.c.equals(c.getSuperclass()))
-          .collect(java.util.stream.Collectors.toList());
+        return new ArrayList<>(TypeIndex.current().getSubclasses(c));
+    }
+
+    /**
+     * Return the classes of the submission that directly implement this
+     * interface.
+     *
+     * @return A list of Class objects.
+     */
+    public List<Class<?>> getImplementors() throws ClassNotFoundException, java.io.IOException {
+        return new ArrayList<>(TypeIndex.current().getImplementors(c));
+    }
+
+    /**
+     * Return the classes of the submission that extend or implement this
+     * type, directly or indirectly.
+     *
+     * @return A list of Class objects.
+     */
+    public List<Class<?>> getDescendants() throws ClassNotFoundException, java.io.IOException {
+        return new ArrayList<>(TypeIndex.current().getDescendants(c));
+    }
+
+    /**
+     * Return the methods of this type that every class of the submission
+     * directly extending (or, for an interface, implementing) it
+     * overrides.  A concrete method in the result is never inherited, so
+     * it probably should be abstract.
+     *
+     * @return KelasMethods
+     */
+    public KelasMethods getMethodsOverriddenByAllSubclasses()
+            throws ClassNotFoundException, java.io.IOException {
+        OverrideGraph graph = OverrideGraph.current();
+        return getMethods().filter(graph::isOverriddenByAll);
+    }
+
+    /**
+     * Return the methods of this class that override a superclass method
+     * of the submission with the same bytecode, i.e. copy the parent's
+     * logic instead of inheriting it.
+     *
+     * @return KelasMethods
+     */
+    public KelasMethods getDuplicatedOverrides() throws ClassNotFoundException, java.io.IOException {
+        OverrideGraph graph = OverrideGraph.current();
+        return getMethods().filter(graph::isDuplicate);
+    }
+
+    /**
+     * Return the methods of the submission that directly override a
+     * method of this class.
+     *
+     * @param m A method declared by this class.
+     * @return A list of Method objects.
+     */
+    public List<Method> getOverriders(Method m) throws ClassNotFoundException, java.io.IOException {
+        return new ArrayList<>(OverrideGraph.current().getOverriders(m));
+    }
+
+    /**
+     * Return the field accesses in the code of this class that reach
+     * into the fields of another class of the submission, e.g.
+     * material.density read from SolidShape3D.
+     *
+     * @return A list of accesses.
+     */
+    public List<AccessGraph.Access> getForeignFieldAccesses() throws java.io.IOException {
+        List<AccessGraph.Access> list = new ArrayList<>();
+        for (AccessGraph.Access a : AccessGraph.current().getFieldAccessesBy(c.getName())) {
+            if (a.isForeign()) {
+                list.add(a);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Checks if no other class of the submission reads or writes the
+     * fields of this class directly.
+     *
+     * @return true if the fields are only used by this class; false otherwise.
+     */
+    public boolean isEncapsulated() throws java.io.IOException {
+        return AccessGraph.current().isEncapsulated(c.getName());
+    }
+
+    /**
+     * Checks if the code of this class reads or writes a field of another
+     * class directly.
+     *
+     * @return true if it reaches into a field of that class; false otherwise.
+     */
+    public boolean reachesInto(Kelas that) throws java.io.IOException {
+        for (AccessGraph.Access a : AccessGraph.current().getFieldAccessesBy(c.getName())) {
+            if (a.isForeign() && a.getOwner().equals(that.c.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the method and constructor calls in the code of this class.
+     *
+     * @return A list of calls.
+     */
+    public List<AccessGraph.Access> getMethodCalls() throws java.io.IOException {
+        return new ArrayList<>(AccessGraph.current().getCallsBy(c.getName()));
     }
 
     /**
@@ -1,82 +1,71 @@
 package cs2030s.grader;
 
 import java.lang.reflect.Modifier;
-import java.lang.reflect.Type;
-import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Constructor;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
- * Stream wrapper that expresses the fields of a Kelas.
+ * Query that expresses the constructors of a Kelas.
  * Methods can be chained, except for terminal operations listed below.
+ * Queries are immutable: each method returns a new query, and a query
+ * can be evaluated any number of times.
  */
-public class KelasConstructors {
-    private Stream<Constructor<?>> stream;
+public class KelasConstructors extends KelasMembers<Constructor<?>, KelasConstructors> {
 
     public KelasConstructors(Stream<Constructor<?>> stream) {
-        this.stream = stream;
+        this(stream.toArray(Constructor<?>[]::new));
+    }
+
+    private KelasConstructors(Constructor<?>[] constructors) {
+        this(constructors, modifiersOf(constructors), 0, 0, null);
+    }
+
+    KelasConstructors(Constructor<?>[] constructors, int[] modifiers, int required, int forbidden,
+            Predicate<? super Constructor<?>> pred) {
+        super(constructors, modifiers, required, forbidden, pred);
+    }
+
+    @Override
+    KelasConstructors with(int required, int forbidden, Predicate<? super Constructor<?>> pred) {
+        return new KelasConstructors(members, modifiers, required, forbidden, pred);
     }
 
     /*
      * Basic field checks
      */
     public KelasConstructors filterPublic(boolean allowed) {
-        Predicate<Constructor<?>> pred = allowed 
-            ? f -> Modifier.isPublic(f.getModifiers()) 
-            : f -> !Modifier.isPublic(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PUBLIC, allowed);
     }
 
     public KelasConstructors filterPrivate(boolean allowed) {
-        Predicate<Constructor<?>> pred = allowed 
-            ? f -> Modifier.isPrivate(f.getModifiers()) 
-            : f -> !Modifier.isPrivate(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PRIVATE, allowed);
     }
 
     public boolean hasOnlyPrivate() {
-        return this.stream.allMatch(f -> Modifier.isPrivate(f.getModifiers()));
+        return allHave(Modifier.PRIVATE);
     }
 
     public KelasConstructors excludeDefault() {
-        this.stream = this.stream
-          .filter(c -> c.getParameterCount() != 0 || Modifier.isPublic(c.getModifiers()));
-        return this;
+        return and(c -> c.getParameterCount() != 0 || Modifier.isPublic(c.getModifiers()));
     }
 
     public KelasConstructors areProtected(boolean allowed) {
-        Predicate<Constructor<?>> pred = allowed 
-            ? f -> Modifier.isProtected(f.getModifiers()) 
-            : f -> !Modifier.isProtected(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PROTECTED, allowed);
     }
 
     public KelasConstructors areStatic(boolean allowed) {
-        Predicate<Constructor<?>> pred = allowed 
-            ? f -> Modifier.isStatic(f.getModifiers()) 
-            : f -> !Modifier.isStatic(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.STATIC, allowed);
     }
 
     public KelasConstructors areFinal(boolean allowed) {
-        Predicate<Constructor<?>> pred = allowed 
-            ? f -> Modifier.isFinal(f.getModifiers()) 
-            : f -> !Modifier.isFinal(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.FINAL, allowed);
     }
 
     // For edge cases that require OR operations
     public KelasConstructors filter(Predicate<Constructor<?>> pred) {
-        this.stream = this.stream.filter(pred);
-        return this;
+        return and(pred);
     }
 
     /*
@@ -88,8 +77,7 @@ public class KelasConstructors {
      * @return KelasConstructors object to chain
      */
     public KelasConstructors haveName(String name) {
-        this.stream = this.stream.filter(f -> f.getName().equals(name));
-        return this;
+        return and(f -> f.getName().equals(name));
     }
 
     /*
@@ -101,47 +89,6 @@ public class KelasConstructors {
      * @return List of fields
      */
     public List<Constructor<?>> toList() {
-        return this.stream.collect(Collectors.toList());
-    }
-
-    /**
-     * Terminal operation. 
-     * Count the number of fields.
-     * @return Number of fields
-     */
-    public int count() {
-        return (int)this.stream.count();
-    }
-
-    /**
-     * Terminal operation. 
-     * Count if number of fields equals number
-     * @return Number of fields
-     */
-    public boolean countEquals(int number) {
-        return count() == number;
-    }
-
-
-    /**
-     * Terminal operation. 
-     * Returns true if fields are absent. Returns false otherwise.
-     */
-    public boolean areAbsent() {
-        return count() == 0;
-    }
-
-    /**
-     * Terminal operation. 
-     * Returns true if fields are present. Returns false otherwise.
-     */
-    public boolean arePresent() {
-        return !areAbsent();
+        return list();
     }
-
-    @Override
-    public String toString() {
-        return this.stream.reduce("", (str, field) -> str + field.toString() + "\n", (str, field) -> str);
-    }
-
 }
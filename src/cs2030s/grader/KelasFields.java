@@ -6,79 +6,71 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Field;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
- * Stream wrapper that expresses the fields of a Kelas.
+ * Query that expresses the fields of a Kelas.
  * Methods can be chained, except for terminal operations listed below.
+ * Queries are immutable: each method returns a new query, and a query
+ * can be evaluated any number of times.
  */
-public class KelasFields{
-    private Stream<Field> stream;
+public class KelasFields extends KelasMembers<Field, KelasFields> {
 
     public KelasFields(Stream<Field> stream) {
-        this.stream = stream;
+        this(stream.toArray(Field[]::new));
+    }
+
+    private KelasFields(Field[] fields) {
+        this(fields, modifiersOf(fields), 0, 0, null);
+    }
+
+    KelasFields(Field[] fields, int[] modifiers, int required, int forbidden,
+            Predicate<? super Field> pred) {
+        super(fields, modifiers, required, forbidden, pred);
+    }
+
+    @Override
+    KelasFields with(int required, int forbidden, Predicate<? super Field> pred) {
+        return new KelasFields(members, modifiers, required, forbidden, pred);
     }
 
     /*
      * Basic field checks
      */
     public KelasFields arePublic(boolean allowed) {
-        Predicate<Field> pred = allowed 
-            ? f -> Modifier.isPublic(f.getModifiers()) 
-            : f -> !Modifier.isPublic(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PUBLIC, allowed);
     }
 
     public KelasFields arePrivate(boolean allowed) {
-        Predicate<Field> pred = allowed 
-            ? f -> Modifier.isPrivate(f.getModifiers()) 
-            : f -> !Modifier.isPrivate(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PRIVATE, allowed);
     }
 
     public boolean hasOnlyPrivate() {
-        return this.stream.allMatch(f -> Modifier.isPrivate(f.getModifiers()));
+        return allHave(Modifier.PRIVATE);
     }
 
     public KelasFields areProtected(boolean allowed) {
-        Predicate<Field> pred = allowed 
-            ? f -> Modifier.isProtected(f.getModifiers()) 
-            : f -> !Modifier.isProtected(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PROTECTED, allowed);
     }
 
     public KelasFields areStatic(boolean allowed) {
-        Predicate<Field> pred = allowed 
-            ? f -> Modifier.isStatic(f.getModifiers()) 
-            : f -> !Modifier.isStatic(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.STATIC, allowed);
     }
 
     public KelasFields areFinal(boolean allowed) {
-        Predicate<Field> pred = allowed 
-            ? f -> Modifier.isFinal(f.getModifiers()) 
-            : f -> !Modifier.isFinal(f.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.FINAL, allowed);
     }
 
     public KelasFields areEnum(boolean allowed) {
         Predicate<Field> pred = allowed
             ? f -> Enum.class.isAssignableFrom(f.getType())
             : f -> !Enum.class.isAssignableFrom(f.getType());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return and(pred);
     }
 
     // For edge cases that require OR operations
     public KelasFields filter(Predicate<Field> pred) {
-        this.stream = this.stream.filter(pred);
-        return this;
+        return and(pred);
     }
 
     /*
@@ -90,8 +82,7 @@ public class KelasFields{
      * @return KelasFields object to chain
      */
     public KelasFields haveName(String name) {
-        this.stream = this.stream.filter(f -> f.getName().equals(name));
-        return this;
+        return and(f -> f.getName().equals(name));
     }
 
     /**
@@ -100,8 +91,7 @@ public class KelasFields{
      * @return KelasFields object to chain
      */
     public KelasFields haveType(Class<?> type) {
-        this.stream = this.stream.filter(f -> f.getType() == type);
-        return this;
+        return and(f -> f.getType() == type);
     }
 
     /**
@@ -111,28 +101,49 @@ public class KelasFields{
      */
     public KelasFields haveType(String className) throws ClassNotFoundException {
         Kelas k = new Kelas(className);
-        this.stream = this.stream.filter(f -> f.getType().equals(k.getC()));
-        return this;
+        return and(f -> f.getType().equals(k.getC()));
     }
 
     /**
-     * Filter fields with type and generic type
+     * Filter fields with type and generic type, e.g. (List.class,
+     * Case.class) for List&lt;Case&gt; or (Map.class, String.class) for
+     * Map&lt;String, Case&gt;: only the first type argument is compared.
+     * Raw fields never match.  Use haveType(TypePattern) to check every
+     * type argument.
      * @param type the type to check
-     * @param genericType the generic type to check
+     * @param genericType the first type argument to check
      * @return KelasFields object to chain
      */
     public KelasFields haveType(Class<?> type, Type genericType) {
-        this.stream = this.stream.filter(f -> {
-            if (f.getType() == type) {
-                ParameterizedType currentType = (ParameterizedType) f.getGenericType();;
-                Type typeArgument = currentType.getActualTypeArguments()[0]; // Fix - handle misc number of generic types
-                if (typeArgument.equals(genericType)) {
-                    return true;
-                }
+        return and(f -> {
+            if (f.getType() != type || !(f.getGenericType() instanceof ParameterizedType)) {
+                return false;
             }
-            return false;
+            Type[] arguments = ((ParameterizedType) f.getGenericType()).getActualTypeArguments();
+            return arguments.length > 0 && arguments[0].equals(genericType);
         });
-        return this;
+    }
+
+    /**
+     * Filter fields whose generic type matches a pattern exactly, e.g.
+     * "Map&lt;String, List&lt;Case&gt;&gt;".
+     * @param pattern the type pattern to check
+     * @return KelasFields object to chain
+     */
+    public KelasFields haveType(TypePattern pattern) {
+        return pattern.isGeneric()
+            ? and(f -> pattern.matches(f.getGenericType()))
+            : and(f -> pattern.matches(f.getType()));
+    }
+
+    /**
+     * Filter fields that can be used where the pattern is expected,
+     * e.g. "Collection&lt;? extends Case&gt;" for a List&lt;Case&gt;.
+     * @param pattern the type pattern to check
+     * @return KelasFields object to chain
+     */
+    public KelasFields haveTypeAssignableTo(TypePattern pattern) {
+        return and(f -> pattern.isAssignableFrom(f.getGenericType()));
     }
 
     /**
@@ -143,7 +154,7 @@ public class KelasFields{
      * @return KelasFields object to chain
      */
     public <T> KelasFields haveTypeWithValue(Class<T> type, T value) {
-        this.stream = this.stream.filter(f -> {
+        return and(f -> {
             try {
                 if (f.getType() == type && type.cast(f.get(null)).equals(value)) {
                     return true;
@@ -154,7 +165,6 @@ public class KelasFields{
                 return false;
             }
         });
-        return this;
     }
 
     /*
@@ -166,47 +176,6 @@ public class KelasFields{
      * @return List of fields
      */
     public List<Field> collect() {
-        return this.stream.collect(Collectors.toList());
+        return list();
     }
-
-    /**
-     * Terminal operation. 
-     * Count the number of fields.
-     * @return Number of fields
-     */
-    public int count() {
-        return (int)this.stream.count();
-    }
-
-    /**
-     * Terminal operation. 
-     * Count if number of fields equals number
-     * @return Number of fields
-     */
-    public boolean countEquals(int number) {
-        return count() == number;
-    }
-
-
-    /**
-     * Terminal operation. 
-     * Returns true if fields are absent. Returns false otherwise.
-     */
-    public boolean areAbsent() {
-        return count() == 0;
-    }
-
-    /**
-     * Terminal operation. 
-     * Returns true if fields are present. Returns false otherwise.
-     */
-    public boolean arePresent() {
-        return !areAbsent();
-    }
-
-    @Override
-    public String toString() {
-        return this.stream.reduce("", (str, field) -> str + field.toString() + "\n", (str, field) -> str);
-    }
-
 }
@@ -0,0 +1,281 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Kelas backed by a class file instead of a loaded Class.
+ * <p>
+ * The class is never loaded, linked or initialized, so no student code
+ * (static initializers included) runs while its design is checked, and
+ * only names, flags and bytecode are kept in memory.  The queries
+ * mirror those of Kelas; types are compared by name.
+ */
+public class KelasFile {
+    private final ClassFile cf;
+
+    /**
+     * Construct a KelasFile for the given parsed class file.
+     *
+     * @param cf The class file model.
+     */
+    public KelasFile(ClassFile cf) {
+        this.cf = cf;
+    }
+
+    /**
+     * Construct a KelasFile for the given class file bytes.
+     *
+     * @param bytes The content of a .class file.
+     * @throws IOException Thrown if the bytes are not a valid class file.
+     */
+    public KelasFile(byte[] bytes) throws IOException {
+        this(ClassFile.read(bytes));
+    }
+
+    /**
+     * Read the class file of the class with the given name from the
+     * submission the current thread is checking, as Kelas(String) would
+     * find the class.
+     *
+     * @param className The binary name of the class.
+     * @return The KelasFile.
+     * @throws IOException Thrown if the class file is missing or invalid.
+     */
+    public static KelasFile forName(String className) throws IOException {
+        return forName(className, KelasUtils.getClassLoader());
+    }
+
+    /**
+     * Read the class file of the class with the given name from a
+     * loader, e.g. a SubmissionClassLoader, which serves the bytes it
+     * compiled in memory.
+     *
+     * @param className The binary name of the class.
+     * @param loader The loader.
+     * @return The KelasFile.
+     * @throws IOException Thrown if the class file is missing or invalid.
+     */
+    public static KelasFile forName(String className, ClassLoader loader) throws IOException {
+        try (InputStream in = loader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (in == null) {
+                throw new IOException("Class file of " + className + " not found");
+            }
+            return new KelasFile(ClassFile.read(in));
+        }
+    }
+
+    public String getName() {
+        return cf.getName();
+    }
+
+    public boolean isAbstract() {
+        return cf.isAbstract();
+    }
+
+    public boolean isInterface() {
+        return cf.isInterface();
+    }
+
+    /**
+     * Get the name of the immediate superclass.
+     * @return Superclass name, or null for java.lang.Object
+     */
+    public String getSuperclassName() {
+        return cf.getSuperName();
+    }
+
+    public List<String> getInterfaceNames() {
+        return cf.getInterfaces();
+    }
+
+    /**
+     * Get all fields
+     * @return KelasFileMembers
+     */
+    public KelasFileMembers getFields() {
+        return KelasFileMembers.of(cf.getFields(), m -> true);
+    }
+
+    /**
+     * Get all methods, excluding constructors and static initializers
+     * (as Class.getDeclaredMethods does).
+     * @return KelasFileMembers
+     */
+    public KelasFileMembers getMethods() {
+        return KelasFileMembers.of(cf.getMethods(), m -> !m.getName().startsWith("<"));
+    }
+
+    /**
+     * Get all constructors
+     * @return KelasFileMembers
+     */
+    public KelasFileMembers getConstructors() {
+        return KelasFileMembers.of(cf.getMethods(), m -> m.getName().equals("<init>"));
+    }
+
+    public boolean doesExtend(KelasFile parent) {
+        return parent.getName().equals(cf.getSuperName());
+    }
+
+    public boolean doesImplement(KelasFile parentInterface) {
+        return cf.getInterfaces().contains(parentInterface.getName());
+    }
+
+    /**
+     * Get the compile-time constant of a field, as the value of the
+     * field's type: a ConstantValue of a boolean field is stored as the
+     * Integer 0 or 1, and is returned as a Boolean.
+     *
+     * @param fieldName The name of the field.
+     * @return The constant, or null if the field has none.
+     */
+    public Object getConstantValue(String fieldName) {
+        for (ClassFile.Member f : cf.getFields()) {
+            if (f.getName().equals(fieldName) && f.getConstantValue() != null) {
+                Object value = f.getConstantValue();
+                switch (f.getDescriptor()) {
+                case "Z": return (Integer) value != 0;
+                case "C": return (char) (int) (Integer) value;
+                case "B": return (byte) (int) (Integer) value;
+                case "S": return (short) (int) (Integer) value;
+                default: return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Convert a value to the form of a ConstantValue entry, which keeps
+     * boolean, char, byte and short constants as Integer.
+     */
+    static Object constantOf(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        } else if (value instanceof Character) {
+            return (int) (Character) value;
+        } else if (value instanceof Byte || value instanceof Short) {
+            return ((Number) value).intValue();
+        }
+        return value;
+    }
+
+    public ClassFile getClassFile() {
+        return cf;
+    }
+
+    @Override
+    public String toString() {
+        return cf.toString();
+    }
+
+    /**
+     * Query over the fields, methods or constructors of a KelasFile.
+     * Methods can be chained, except for terminal operations.
+     */
+    public static class KelasFileMembers extends KelasMembers<ClassFile.Member, KelasFileMembers> {
+
+        KelasFileMembers(ClassFile.Member[] members, int[] modifiers, int required, int forbidden,
+                Predicate<? super ClassFile.Member> pred) {
+            super(members, modifiers, required, forbidden, pred);
+        }
+
+        static KelasFileMembers of(List<ClassFile.Member> all, Predicate<ClassFile.Member> keep) {
+            ClassFile.Member[] members = all.stream().filter(keep).toArray(ClassFile.Member[]::new);
+            int[] modifiers = new int[members.length];
+            for (int i = 0; i < members.length; i++) {
+                modifiers[i] = members[i].getAccess();
+            }
+            return new KelasFileMembers(members, modifiers, 0, 0, null);
+        }
+
+        @Override
+        KelasFileMembers with(int required, int forbidden, Predicate<? super ClassFile.Member> pred) {
+            return new KelasFileMembers(members, modifiers, required, forbidden, pred);
+        }
+
+        public KelasFileMembers arePublic(boolean allowed) {
+            return modifier(java.lang.reflect.Modifier.PUBLIC, allowed);
+        }
+
+        public KelasFileMembers arePrivate(boolean allowed) {
+            return modifier(java.lang.reflect.Modifier.PRIVATE, allowed);
+        }
+
+        public KelasFileMembers areProtected(boolean allowed) {
+            return modifier(java.lang.reflect.Modifier.PROTECTED, allowed);
+        }
+
+        public KelasFileMembers areStatic(boolean allowed) {
+            return modifier(java.lang.reflect.Modifier.STATIC, allowed);
+        }
+
+        public KelasFileMembers areFinal(boolean allowed) {
+            return modifier(java.lang.reflect.Modifier.FINAL, allowed);
+        }
+
+        public KelasFileMembers areAbstract(boolean allowed) {
+            return modifier(java.lang.reflect.Modifier.ABSTRACT, allowed);
+        }
+
+        public boolean hasOnlyPrivate() {
+            return allHave(java.lang.reflect.Modifier.PRIVATE);
+        }
+
+        // For edge cases that require OR operations
+        public KelasFileMembers filter(Predicate<ClassFile.Member> pred) {
+            return and(pred);
+        }
+
+        /**
+         * Filter members with name
+         * @param name the name to check
+         * @return KelasFileMembers object to chain
+         */
+        public KelasFileMembers haveName(String name) {
+            return and(m -> m.getName().equals(name));
+        }
+
+        /**
+         * Filter fields (or methods by return type) with type
+         * @param typeName the type name, e.g. "int" or "java.lang.String"
+         * @return KelasFileMembers object to chain
+         */
+        public KelasFileMembers haveType(String typeName) {
+            return and(m -> m.getTypeName().equals(typeName));
+        }
+
+        /**
+         * Filter fields (or methods by return type) with type
+         * @param type the type to check
+         * @return KelasFileMembers object to chain
+         */
+        public KelasFileMembers haveType(Class<?> type) {
+            return haveType(type.getTypeName());
+        }
+
+        /**
+         * Filter fields with a compile-time constant value.  Unlike
+         * KelasFields.haveTypeWithValue, the value is read from the class
+         * file and the class is not initialized.
+         * @param value the value to check, e.g. 1, true or 'c'
+         * @return KelasFileMembers object to chain
+         */
+        public KelasFileMembers haveConstantValue(Object value) {
+            Object constant = constantOf(value);
+            return and(m -> constant.equals(m.getConstantValue()));
+        }
+
+        /**
+         * Terminal operation.
+         * Collects the members into a List.
+         * @return List of members
+         */
+        public List<ClassFile.Member> collect() {
+            return list();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package cs2030s.grader;
+
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Immutable query over the members (fields, methods or constructors) of
+ * a Kelas.
+ * <p>
+ * The members are an array snapshot that is never copied; every filter
+ * returns a new query that shares the snapshot.  A query can therefore be
+ * evaluated any number of times, and intermediate queries can be reused
+ * as the starting point of others.
+ * <p>
+ * Modifier filters (arePublic, areFinal, ...) are not predicates: they
+ * are folded into a pair of bit masks, the modifiers that must be set
+ * and the modifiers that must be clear, and tested against a pre-extracted
+ * int[] of modifiers.  A chain of modifier filters therefore costs one
+ * comparison per member, and a terminal operation over such a chain
+ * allocates nothing.
+ *
+ * @param <T> The member type.
+ * @param <K> The concrete query type returned by filters.
+ */
+abstract class KelasMembers<T, K extends KelasMembers<T, K>> {
+    final T[] members;
+    final int[] modifiers;
+    final int required;
+    final int forbidden;
+    final Predicate<? super T> pred;
+
+    KelasMembers(T[] members, int[] modifiers, int required, int forbidden, Predicate<? super T> pred) {
+        this.members = members;
+        this.modifiers = modifiers;
+        this.required = required;
+        this.forbidden = forbidden;
+        this.pred = pred;
+    }
+
+    /**
+     * Create a query of the same kind over the same members.
+     */
+    abstract K with(int required, int forbidden, Predicate<? super T> pred);
+
+    static int[] modifiersOf(Member[] members) {
+        int[] modifiers = new int[members.length];
+        for (int i = 0; i < members.length; i++) {
+            modifiers[i] = members[i].getModifiers();
+        }
+        return modifiers;
+    }
+
+    /**
+     * Add a modifier filter to this query.
+     * @param modifier the Modifier bit(s) to check
+     * @param allowed true if the bits must be set; false if they must be clear
+     * @return new query with the filter added
+     */
+    K modifier(int modifier, boolean allowed) {
+        return allowed
+            ? with(required | modifier, forbidden, pred)
+            : with(required, forbidden | modifier, pred);
+    }
+
+    /**
+     * Add a filter to this query.
+     * @param p the condition members must satisfy
+     * @return new query with the filter added
+     */
+    K and(Predicate<? super T> p) {
+        if (this.pred == null) {
+            return with(required, forbidden, p);
+        }
+        Predicate<? super T> q = this.pred;
+        return with(required, forbidden, m -> q.test(m) && p.test(m));
+    }
+
+    boolean matches(int i) {
+        int m = modifiers[i];
+        return (m & required) == required
+            && (m & forbidden) == 0
+            && (pred == null || pred.test(members[i]));
+    }
+
+    List<T> list() {
+        List<T> list = new ArrayList<>();
+        for (int i = 0; i < members.length; i++) {
+            if (matches(i)) {
+                list.add(members[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Check that every member of this query has the given modifier.
+     */
+    boolean allHave(int modifier) {
+        for (int i = 0; i < members.length; i++) {
+            if (matches(i) && (modifiers[i] & modifier) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Terminal operation.
+     * Count the number of members.
+     * @return Number of members
+     */
+    public int count() {
+        int n = 0;
+        for (int i = 0; i < members.length; i++) {
+            if (matches(i)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Count the matching members, but stop as soon as limit is reached.
+     * @return min(count(), limit)
+     */
+    int countUpTo(int limit) {
+        int n = 0;
+        for (int i = 0; i < members.length && n < limit; i++) {
+            if (matches(i)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Terminal operation.
+     * Count if number of members equals number.
+     * Stops scanning once more than number members match.
+     * @return true if the count matches; false otherwise
+     */
+    public boolean countEquals(int number) {
+        return number >= 0 && countUpTo(number + 1) == number;
+    }
+
+    /**
+     * Terminal operation.
+     * Returns true if at least number members match.
+     * Stops scanning once number members match.
+     */
+    public boolean countAtLeast(int number) {
+        return countUpTo(Math.max(number, 0)) >= number;
+    }
+
+    /**
+     * Terminal operation.
+     * Returns true if at most number members match.
+     * Stops scanning once more than number members match.
+     */
+    public boolean countAtMost(int number) {
+        return number >= 0 && countUpTo(number + 1) <= number;
+    }
+
+    /**
+     * Terminal operation.
+     * Returns true if members are absent. Returns false otherwise.
+     * Stops scanning at the first match.
+     */
+    public boolean areAbsent() {
+        return countUpTo(1) == 0;
+    }
+
+    /**
+     * Terminal operation.
+     * Returns true if members are present. Returns false otherwise.
+     * Stops scanning at the first match.
+     */
+    public boolean arePresent() {
+        return countUpTo(1) == 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < members.length; i++) {
+            if (matches(i)) {
+                sb.append(members[i]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package cs2030s.grader;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the reflection data of one class.
+ * <p>
+ * Reflection copies its arrays on every call, so Kelas takes the
+ * snapshot once per class and shares it.  Snapshots are cached in a
+ * ClassValue: the cache entry lives and dies with the Class itself and
+ * never keeps a submission's ClassLoader reachable.
+ * <p>
+ * The arrays are shared and must not be modified.
+ */
+final class KelasMetadata {
+    private static final ClassValue<KelasMetadata> CACHE = new ClassValue<>() {
+        @Override
+        protected KelasMetadata computeValue(Class<?> c) {
+            return new KelasMetadata(c);
+        }
+    };
+
+    private final int modifiers;
+    private final Class<?>[] interfaces;
+    private final Set<Class<?>> interfaceSet;
+    private final Field[] fields;
+    private final int[] fieldModifiers;
+    private final Method[] methods;
+    private final int[] methodModifiers;
+    private final Constructor<?>[] constructors;
+    private final int[] constructorModifiers;
+
+    private KelasMetadata(Class<?> c) {
+        this.modifiers = c.getModifiers();
+        this.interfaces = c.getInterfaces();
+        this.interfaceSet = Set.of(interfaces);
+
+        this.fields = c.getDeclaredFields();
+        this.fieldModifiers = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldModifiers[i] = fields[i].getModifiers();
+        }
+
+        this.methods = c.getDeclaredMethods();
+        this.methodModifiers = new int[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            methodModifiers[i] = methods[i].getModifiers();
+        }
+
+        this.constructors = c.getDeclaredConstructors();
+        this.constructorModifiers = new int[constructors.length];
+        for (int i = 0; i < constructors.length; i++) {
+            constructorModifiers[i] = constructors[i].getModifiers();
+        }
+    }
+
+    /**
+     * Get the snapshot of a class, taking it on first use.
+     *
+     * @param c The class.
+     * @return The shared snapshot.
+     */
+    static KelasMetadata of(Class<?> c) {
+        return CACHE.get(c);
+    }
+
+    int getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * Get the directly implemented interfaces, in declaration order.
+     */
+    Class<?>[] getInterfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Get the directly implemented interfaces, for constant-time lookup.
+     */
+    Set<Class<?>> getInterfaceSet() {
+        return interfaceSet;
+    }
+
+    Field[] getFields() {
+        return fields;
+    }
+
+    int[] getFieldModifiers() {
+        return fieldModifiers;
+    }
+
+    Method[] getMethods() {
+        return methods;
+    }
+
+    int[] getMethodModifiers() {
+        return methodModifiers;
+    }
+
+    Constructor<?>[] getConstructors() {
+        return constructors;
+    }
+
+    int[] getConstructorModifiers() {
+        return constructorModifiers;
+    }
+}
@@ -1,79 +1,121 @@
 package cs2030s.grader;
 
+import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
- * Stream wrapper that expresses the methods of a Kelas.
+ * Query that expresses the methods of a Kelas.
  * Methods can be chained, except for terminal operations listed below.
+ * Queries are immutable: each method returns a new query, and a query
+ * can be evaluated any number of times.
  */
-public class KelasMethods {
-    private Stream<Method> stream;
+public class KelasMethods extends KelasMembers<Method, KelasMethods> {
 
     public KelasMethods(Stream<Method> stream) {
-        this.stream = stream;
+        this(stream.toArray(Method[]::new));
+    }
+
+    private KelasMethods(Method[] methods) {
+        this(methods, modifiersOf(methods), 0, 0, null);
+    }
+
+    KelasMethods(Method[] methods, int[] modifiers, int required, int forbidden,
+            Predicate<? super Method> pred) {
+        super(methods, modifiers, required, forbidden, pred);
+    }
+
+    @Override
+    KelasMethods with(int required, int forbidden, Predicate<? super Method> pred) {
+        return new KelasMethods(members, modifiers, required, forbidden, pred);
     }
 
     /*
      * Basic method checks
      */
     public KelasMethods arePublic(boolean allowed) {
-        Predicate<Method> pred = allowed
-            ? m -> Modifier.isPublic(m.getModifiers())
-            : m -> !Modifier.isPublic(m.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PUBLIC, allowed);
     }
 
     public KelasMethods arePrivate(boolean allowed) {
-        Predicate<Method> pred = allowed
-            ? m -> Modifier.isPrivate(m.getModifiers())
-            : m -> !Modifier.isPrivate(m.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PRIVATE, allowed);
     }
 
     public KelasMethods areProtected(boolean allowed) {
-        Predicate<Method> pred = allowed
-            ? m -> Modifier.isProtected(m.getModifiers())
-            : m -> !Modifier.isProtected(m.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.PROTECTED, allowed);
     }
 
     public KelasMethods areAbstract(boolean allowed) {
-        Predicate<Method> pred = allowed
-            ? m -> Modifier.isAbstract(m.getModifiers())
-            : m -> !Modifier.isAbstract(m.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.ABSTRACT, allowed);
     }
 
     public KelasMethods areStatic(boolean allowed) {
-        Predicate<Method> pred = allowed
-            ? m -> Modifier.isStatic(m.getModifiers())
-            : m -> !Modifier.isStatic(m.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.STATIC, allowed);
     }
 
     public KelasMethods areFinal(boolean allowed) {
-        Predicate<Method> pred = allowed
-            ? m -> Modifier.isFinal(m.getModifiers())
-            : m -> !Modifier.isFinal(m.getModifiers());
-        this.stream = this.stream.filter(pred);
-        return this;
+        return modifier(Modifier.FINAL, allowed);
+    }
+
+    /**
+     * Filter bridge methods, which javac generates for covariant and
+     * generic overrides.
+     * @param allowed whether bridge methods are kept or dropped
+     * @return KelasMethods object to chain
+     */
+    public KelasMethods areBridge(boolean allowed) {
+        return and(m -> m.isBridge() == allowed);
+    }
+
+    /**
+     * Filter synthetic methods (bridges, lambda bodies, ...), which do
+     * not appear in the source.
+     * @param allowed whether synthetic methods are kept or dropped
+     * @return KelasMethods object to chain
+     */
+    public KelasMethods areSynthetic(boolean allowed) {
+        return and(m -> m.isSynthetic() == allowed);
+    }
+
+    /**
+     * Filter methods that override a method of a superclass or
+     * interface, covariant overrides included.
+     * @param allowed whether overriding methods are kept or dropped
+     * @return KelasMethods object to chain
+     */
+    public KelasMethods areOverriding(boolean allowed) {
+        return and(m -> (MethodIndex.overriddenBy(m) != null) == allowed);
+    }
+
+    /**
+     * Filter methods that every direct subclass in the submission
+     * overrides (see Kelas.getMethodsOverriddenByAllSubclasses).
+     * @param allowed whether such methods are kept or dropped
+     * @return KelasMethods object to chain
+     */
+    public KelasMethods areOverriddenByAllSubclasses(boolean allowed)
+            throws ClassNotFoundException, IOException {
+        OverrideGraph graph = OverrideGraph.current();
+        return and(m -> graph.isOverriddenByAll(m) == allowed);
+    }
+
+    /**
+     * Filter methods that override a method with the same bytecode.
+     * @param allowed whether duplicate overrides are kept or dropped
+     * @return KelasMethods object to chain
+     */
+    public KelasMethods areDuplicateOverrides(boolean allowed) throws ClassNotFoundException, IOException {
+        OverrideGraph graph = OverrideGraph.current();
+        return and(m -> graph.isDuplicate(m) == allowed);
     }
 
     // For edge cases that require OR operations
     public KelasMethods filter(Predicate<Method> pred) {
-        this.stream = this.stream.filter(pred);
-        return this;
+        return and(pred);
     }
 
     /*
@@ -85,59 +127,66 @@ public class KelasMethods {
      * @return KelasMethods object to chain
      */
     public KelasMethods haveName(String name) {
-        this.stream = this.stream.filter(m -> m.getName() == name);
-        return this;
+        return and(m -> m.getName().equals(name));
     }
 
     /**
-     * Check if methods have parameters
-     * @param parameters the parameters to check (varargs)
-     * @return KelasFields object to chain
+     * Check if methods have return type
+     * @param type the return type to check
+     * @return KelasMethods object to chain
      */
-    public KelasMethods haveParameters(Class<?>... parameters) {
-        this.stream = this.stream.filter(m -> Arrays.equals(m.getParameterTypes(), parameters));
-        return this;
+    public KelasMethods haveReturnType(Class<?> type) {
+        return and(m -> m.getReturnType() == type);
     }
 
-    /*
-     * Terminal
-     */
     /**
-     * Terminal operation.
-     * Collects the methods into a List.
-     * @return List of methods
+     * Check if methods have a generic return type matching a pattern,
+     * e.g. "List&lt;Case&gt;"
+     * @param pattern the type pattern to check
+     * @return KelasMethods object to chain
      */
-    public List<Method> collect() {
-        return this.stream.collect(Collectors.toList());
+    public KelasMethods haveReturnType(TypePattern pattern) {
+        return pattern.isGeneric()
+            ? and(m -> pattern.matches(m.getGenericReturnType()))
+            : and(m -> pattern.matches(m.getReturnType()));
     }
 
     /**
-     * Terminal operation.
-     * Count the number of methods.
-     * @return Number of methods
+     * Check if methods override the given class's method, i.e. a method
+     * declared by that class or inherited from it, directly or through
+     * the overrides of intermediate classes.
+     * @param type the class or interface whose method is overridden
+     * @return KelasMethods object to chain
      */
-    public int count() {
-        return (int) this.stream.count();
+    public KelasMethods overrideMethodOf(Class<?> type) {
+        return and(m -> {
+            for (Method o = MethodIndex.overriddenBy(m); o != null; o = MethodIndex.overriddenBy(o)) {
+                if (o.getDeclaringClass().isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+            return false;
+        });
     }
 
     /**
-     * Terminal operation.
-     * Returns true if methods are absent. Returns false otherwise.
+     * Check if methods have parameters
+     * @param parameters the parameters to check (varargs)
+     * @return KelasFields object to chain
      */
-    public boolean areAbsent() {
-        return count() == 0;
+    public KelasMethods haveParameters(Class<?>... parameters) {
+        return and(m -> Arrays.equals(m.getParameterTypes(), parameters));
     }
 
+    /*
+     * Terminal
+     */
     /**
      * Terminal operation.
-     * Returns true if methods are present. Returns false otherwise.
+     * Collects the methods into a List.
+     * @return List of methods
      */
-    public boolean arePresent() {
-        return !areAbsent();
-    }
-
-    @Override
-    public String toString() {
-        return this.stream.reduce("", (str, method) -> str + method.toString() + "\n", (str, method) -> str);
+    public List<Method> collect() {
+        return list();
     }
 }
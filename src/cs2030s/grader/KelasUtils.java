@@ -117,15 +117,56 @@ public class KelasUtils {
   //     return found;
   // }
   //
+  /**
+   * Get the loader that student classes are resolved against: the context
+   * class loader, which the grader sets to the submission's loader.
+   */
+  static ClassLoader getClassLoader() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return classLoader != null ? classLoader : KelasUtils.class.getClassLoader();
+  }
+
   public static List<Class<?>> getClasses()
       throws ClassNotFoundException, java.io.IOException {
-      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-      assert classLoader != null;
+      return TypeIndex.current().getClasses();
+  }
+
+  /**
+   * Scan the classes visible to a loader.  Used once per loader to build
+   * its TypeIndex; use getClasses() to read the cached result.
+   */
+  static List<Class<?>> getClasses(ClassLoader classLoader)
+      throws ClassNotFoundException, java.io.IOException {
+      if (classLoader instanceof SubmissionClassLoader) {
+        return ((SubmissionClassLoader) classLoader).getTypeIndex().getClasses();
+      }
+      java.net.URL resource = classLoader.getResource(".");
+        return findClasses(new java.io.File(resource.getFile()), classLoader);
+  }
+
+  /**
+   * List the names of the classes visible to a loader without loading
+   * them.
+   */
+  static List<String> getClassNames(ClassLoader classLoader) {
+      if (classLoader instanceof SubmissionClassLoader) {
+        return ((SubmissionClassLoader) classLoader).getClassNames();
+      }
+      List<String> names = new java.util.ArrayList<>();
       java.net.URL resource = classLoader.getResource(".");
-        return findClasses(new java.io.File(resource.getFile()), ".");
+      java.io.File[] files = resource == null ? null : new java.io.File(resource.getFile()).listFiles();
+      if (files != null) {
+        for (java.io.File file : files) {
+          if (file.getName().endsWith(".class")) {
+            names.add(file.getName().substring(0, file.getName().length() - 6));
+          }
+        }
+      }
+      java.util.Collections.sort(names);
+      return names;
   }
 
-  private static List<Class<?>> findClasses(java.io.File directory, String packageName) throws ClassNotFoundException {
+  private static List<Class<?>> findClasses(java.io.File directory, ClassLoader classLoader) throws ClassNotFoundException {
     List<Class<?>> classes = new java.util.ArrayList<>();
     if (!directory.exists()) {
       return classes;
@@ -134,7 +175,7 @@ public class KelasUtils {
     for (java.io.File file : files) {
       if (file.getName().endsWith(".class")) {
         String className = file.getName().substring(0, file.getName().length() - 6);
-        classes.add(Class.forName(className));
+        classes.add(Class.forName(className, false, classLoader));
       }
     }
     return classes;
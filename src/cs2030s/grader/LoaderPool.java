@@ -0,0 +1,112 @@
+package cs2030s.grader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Manages the lifecycle of the SubmissionClassLoaders of a batch.
+ * <p>
+ * The engine opens one loader per submission and releases it as soon
+ * as the submission's results are emitted.  Releasing drops the class
+ * bytes and the type and ancestor indexes the loader holds; once the
+ * checks no longer reference the loader, it and its classes become
+ * unreachable and the JVM can unload them.  Nothing in Kelas holds a
+ * strong reference to a submission class: metadata lives in a
+ * ClassValue of the class itself and the indexes are owned by its
+ * loader.
+ * <p>
+ * The pool tracks every loader through a weak reference, so it can tell
+ * how many are still alive after release, i.e. have leaked or not yet
+ * been collected.  Together with the Metaspace usage this shows whether
+ * a long batch runs in bounded memory.
+ */
+public class LoaderPool {
+    private final ClassLoader parent;
+    private final ReferenceQueue<SubmissionClassLoader> collected = new ReferenceQueue<>();
+    private final Set<Reference<SubmissionClassLoader>> live =
+        Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private int opened;
+    private int released;
+
+    /**
+     * Construct a pool whose loaders delegate to the given parent.
+     *
+     * @param parent The parent loader, usually the grader's own loader.
+     */
+    public LoaderPool(ClassLoader parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Open a loader for the compiled classes of one submission.
+     *
+     * @param classes Map of binary class name to class file bytes.
+     * @return The loader.
+     */
+    public SubmissionClassLoader open(Map<String, byte[]> classes) {
+        SubmissionClassLoader loader = new SubmissionClassLoader(classes, parent);
+        live.add(new WeakReference<>(loader, collected));
+        synchronized (this) {
+            opened++;
+        }
+        expunge();
+        return loader;
+    }
+
+    /**
+     * Release a loader whose submission has been graded.  Classes it has
+     * already defined stay usable; no new class can be loaded from it.
+     *
+     * @param loader The loader.
+     */
+    public void release(SubmissionClassLoader loader) {
+        loader.release();
+        synchronized (this) {
+            released++;
+        }
+    }
+
+    private void expunge() {
+        for (Reference<?> r = collected.poll(); r != null; r = collected.poll()) {
+            live.remove(r);
+        }
+    }
+
+    /**
+     * Get the number of loaders that have not been garbage collected yet.
+     * @return Count of live loaders
+     */
+    public int liveCount() {
+        expunge();
+        return live.size();
+    }
+
+    /**
+     * Get the bytes of Metaspace in use, where class metadata is kept.
+     * @return Bytes used, or -1 if the JVM has no Metaspace pool
+     */
+    public static long metaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace")) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long metaspace = metaspaceUsed();
+        return String.format("Loaders: %d opened, %d released, %d live; %d classes unloaded; Metaspace %s",
+                opened, released, liveCount(),
+                ManagementFactory.getClassLoadingMXBean().getUnloadedClassCount(),
+                metaspace < 0 ? "n/a" : String.format("%.1f MB", metaspace / (1024.0 * 1024.0)));
+    }
+}
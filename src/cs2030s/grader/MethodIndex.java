@@ -0,0 +1,213 @@
+package cs2030s.grader;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the declared methods of one class by name, with the
+ * supertype method each of them overrides.
+ * <p>
+ * Each method gets a Signature: the method and the supertype method it
+ * overrides, if any.  Overrides are resolved once
+ * per class: a method overrides the nearest non-private, non-static
+ * method of a superclass or interface with the same name and erased
+ * parameter types (a covariant return is allowed), accessible from the
+ * class.  A method whose erasure differs from the supertype method's,
+ * as with compareTo(Case) for Comparable&lt;Case&gt;, overrides what its
+ * bridge method overrides.
+ * <p>
+ * Like KelasMetadata, indexes are cached in a ClassValue and never keep
+ * a submission's ClassLoader reachable.
+ */
+final class MethodIndex {
+    private static final ClassValue<MethodIndex> CACHE = new ClassValue<>() {
+        @Override
+        protected MethodIndex computeValue(Class<?> c) {
+            return new MethodIndex(c);
+        }
+    };
+
+    private static final Method[] NONE = new Method[0];
+
+    private final Map<String, Method[]> byName;
+    private final Map<String, int[]> modifiersByName;
+    private final Map<Method, Signature> signatures = new HashMap<>();
+
+    private MethodIndex(Class<?> c) {
+        Method[] methods = KelasMetadata.of(c).getMethods();
+        Map<String, List<Method>> names = new LinkedHashMap<>();
+        for (Method m : methods) {
+            names.computeIfAbsent(m.getName(), k -> new ArrayList<>()).add(m);
+            signatures.put(m, new Signature(m, findOverridden(c, m.getName(), m.getParameterTypes())));
+        }
+        // A method whose erasure differs from the method it overrides
+        // takes the overridden method of its bridge.
+        for (Method m : methods) {
+            Signature s = signatures.get(m);
+            if (s.overridden != null || m.isBridge() || Modifier.isStatic(m.getModifiers())) {
+                continue;
+            }
+            for (Method b : names.get(m.getName())) {
+                Signature bridge = signatures.get(b);
+                if (b.isBridge() && bridge.overridden != null && bridges(b, m)) {
+                    signatures.put(m, new Signature(m, bridge.overridden));
+                    break;
+                }
+            }
+        }
+
+        Map<String, Method[]> byName = new HashMap<>();
+        Map<String, int[]> modifiersByName = new HashMap<>();
+        names.forEach((name, list) -> {
+            Method[] overloads = list.toArray(new Method[0]);
+            byName.put(name, overloads);
+            modifiersByName.put(name, KelasMembers.modifiersOf(overloads));
+        });
+        this.byName = Collections.unmodifiableMap(byName);
+        this.modifiersByName = Collections.unmodifiableMap(modifiersByName);
+    }
+
+    /**
+     * Get the index of a class, building it on first use.
+     */
+    static MethodIndex of(Class<?> c) {
+        return CACHE.get(c);
+    }
+
+    /**
+     * Get the declared methods with the given name, overloads and
+     * bridges included.  The array is shared and must not be modified.
+     */
+    Method[] overloads(String name) {
+        return byName.getOrDefault(name, NONE);
+    }
+
+    /**
+     * Get the modifiers of overloads(name), index for index.
+     */
+    int[] modifiers(String name) {
+        return modifiersByName.getOrDefault(name, new int[0]);
+    }
+
+    /**
+     * Get the signature of a method declared by the indexed class.
+     */
+    Signature signature(Method m) {
+        return signatures.get(m);
+    }
+
+    /**
+     * Get the supertype method overridden by any method, looking it up
+     * in the index of its declaring class.
+     *
+     * @return The overridden method, or null if it overrides none.
+     */
+    static Method overriddenBy(Method m) {
+        Signature s = of(m.getDeclaringClass()).signature(m);
+        return s == null ? null : s.overridden;
+    }
+
+    private static boolean bridges(Method bridge, Method target) {
+        Class<?>[] b = bridge.getParameterTypes();
+        Class<?>[] t = target.getParameterTypes();
+        if (b.length != t.length || !bridge.getReturnType().isAssignableFrom(target.getReturnType())) {
+            return false;
+        }
+        for (int i = 0; i < b.length; i++) {
+            if (!b[i].isAssignableFrom(t[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the method a method of c with the given name and parameters
+     * overrides: the superclasses are searched nearest first, then the
+     * interfaces.
+     */
+    private static Method findOverridden(Class<?> c, String name, Class<?>[] parameters) {
+        if (name.equals("<init>") || name.equals("<clinit>")) {
+            return null;
+        }
+        for (Class<?> s = c.getSuperclass(); s != null; s = s.getSuperclass()) {
+            Method m = declared(s, name, parameters);
+            if (m != null && overridable(m, c)) {
+                return m;
+            }
+        }
+        for (Class<?> s = c; s != null; s = s.getSuperclass()) {
+            for (Class<?> i : KelasMetadata.of(s).getInterfaces()) {
+                Method m = inInterface(i, name, parameters);
+                if (m != null) {
+                    return m;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Method inInterface(Class<?> i, String name, Class<?>[] parameters) {
+        Method m = declared(i, name, parameters);
+        if (m != null && !Modifier.isStatic(m.getModifiers()) && !Modifier.isPrivate(m.getModifiers())) {
+            return m;
+        }
+        for (Class<?> s : KelasMetadata.of(i).getInterfaces()) {
+            m = inInterface(s, name, parameters);
+            if (m != null) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static Method declared(Class<?> c, String name, Class<?>[] parameters) {
+        for (Method m : KelasMetadata.of(c).getMethods()) {
+            if (m.getName().equals(name) && !m.isBridge()
+                    && Arrays.equals(m.getParameterTypes(), parameters)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static boolean overridable(Method m, Class<?> from) {
+        int mod = m.getModifiers();
+        if (Modifier.isPrivate(mod) || Modifier.isStatic(mod)) {
+            return false;
+        }
+        if (Modifier.isPublic(mod) || Modifier.isProtected(mod)) {
+            return true;
+        }
+        // Package-private methods are only overridden within the package.
+        Class<?> owner = m.getDeclaringClass();
+        return owner.getClassLoader() == from.getClassLoader()
+            && owner.getPackageName().equals(from.getPackageName());
+    }
+
+    /**
+     * One declared method and the method it overrides.
+     */
+    static final class Signature {
+        final Method method;
+        final Method overridden;
+
+        Signature(Method method, Method overridden) {
+            this.method = method;
+            this.overridden = Modifier.isStatic(method.getModifiers()) || Modifier.isPrivate(method.getModifiers())
+                ? null : overridden;
+        }
+
+        @Override
+        public String toString() {
+            return method.toGenericString() + (overridden == null ? "" : " overrides " + overridden);
+        }
+    }
+}
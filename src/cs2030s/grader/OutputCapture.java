@@ -0,0 +1,74 @@
+package cs2030s.grader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * Redirects System.out per thread, so that whatever a checker prints
+ * can be collected without forking a JVM for it.
+ * <p>
+ * Threads that are not capturing still write to the original stdout.
+ */
+class OutputCapture extends OutputStream {
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFER = new ThreadLocal<>();
+    private static PrintStream original;
+
+    private final OutputStream out;
+
+    private OutputCapture(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Install the capturing stream as System.out.  Idempotent.
+     */
+    static synchronized void install() {
+        if (original == null) {
+            original = System.out;
+            System.setOut(new PrintStream(new OutputCapture(original), true, Charset.defaultCharset()));
+        }
+    }
+
+    /**
+     * Start capturing the output of the current thread.
+     */
+    static void begin() {
+        install();
+        BUFFER.set(new ByteArrayOutputStream());
+    }
+
+    /**
+     * Stop capturing the output of the current thread.
+     *
+     * @return Everything the current thread printed since begin().
+     */
+    static String end() {
+        System.out.flush();
+        ByteArrayOutputStream buffer = BUFFER.get();
+        BUFFER.remove();
+        return buffer == null ? "" : buffer.toString(Charset.defaultCharset());
+    }
+
+    private OutputStream target() {
+        ByteArrayOutputStream buffer = BUFFER.get();
+        return buffer == null ? out : buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
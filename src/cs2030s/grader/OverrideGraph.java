@@ -0,0 +1,225 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Graph of the overrides among the classes of one submission.
+ * <p>
+ * Every declared method of every class of the submission (bridges and
+ * synthetic methods aside) is linked, through MethodIndex, to the
+ * supertype method it overrides; the graph keeps the reverse edges, from
+ * a method to the methods that directly override it.  An override whose
+ * bytecode is the same as the overridden method's, once references to
+ * the class itself and constant pool indexes are normalized, is marked
+ * as a duplicate: the subclass copied the parent's logic instead of
+ * inheriting it.
+ * <p>
+ * The graph is built in one pass when first queried and is owned by the
+ * TypeIndex of the submission, so whole-hierarchy checks such as "every
+ * subclass overrides m" are lookups instead of reflection loops over
+ * every pair of classes.
+ */
+final class OverrideGraph {
+    private final TypeIndex types;
+    private final Map<Method, List<Method>> overriders = new HashMap<>();
+    private final Set<Method> duplicates = new HashSet<>();
+
+    OverrideGraph(TypeIndex types) {
+        this.types = types;
+        Map<Class<?>, ClassFile> files = new HashMap<>();
+        for (Class<?> c : types.getClasses()) {
+            for (Method m : KelasMetadata.of(c).getMethods()) {
+                Method overridden = m.isBridge() || m.isSynthetic() ? null : MethodIndex.overriddenBy(m);
+                if (overridden == null) {
+                    continue;
+                }
+                overriders.computeIfAbsent(overridden, k -> new ArrayList<>()).add(m);
+                if (overridden.getDeclaringClass().getClassLoader() == c.getClassLoader()) {
+                    String code = normalizedCode(files, m);
+                    if (code != null && code.equals(normalizedCode(files, overridden))) {
+                        duplicates.add(m);
+                    }
+                }
+            }
+        }
+        overriders.replaceAll((k, v) -> Collections.unmodifiableList(v));
+    }
+
+    /**
+     * Get the graph of the submission the current thread is checking.
+     */
+    static OverrideGraph current() throws ClassNotFoundException, IOException {
+        return TypeIndex.current().getOverrideGraph();
+    }
+
+    /**
+     * Get the methods of the submission that directly override m.
+     */
+    List<Method> getOverriders(Method m) {
+        return overriders.getOrDefault(m, List.of());
+    }
+
+    /**
+     * Check if a method overrides its supertype method with the same
+     * bytecode.
+     */
+    boolean isDuplicate(Method m) {
+        return duplicates.contains(m);
+    }
+
+    /**
+     * Check if every class of the submission that directly extends (or,
+     * for an interface, implements) the declaring class of m declares an
+     * override of m.  False if there are no such classes.
+     */
+    boolean isOverriddenByAll(Method m) {
+        Class<?> c = m.getDeclaringClass();
+        List<Class<?>> subtypes = c.isInterface() ? types.getImplementors(c) : types.getSubclasses(c);
+        if (subtypes.isEmpty()) {
+            return false;
+        }
+        Set<Class<?>> overriding = new HashSet<>();
+        for (Method o : getOverriders(m)) {
+            overriding.add(o.getDeclaringClass());
+        }
+        return overriding.containsAll(subtypes);
+    }
+
+    /**
+     * Get the bytecode of a method as a string of instructions whose
+     * operands are resolved: constant pool entries become the constants,
+     * classes and members they name, with the declaring class itself
+     * written as "this", and branch targets, including every case of a
+     * switch, become instruction numbers.
+     *
+     * @return The normalized code, or null if it has none or its class
+     *     file cannot be read.
+     */
+    private static String normalizedCode(Map<Class<?>, ClassFile> files, Method m) {
+        Class<?> c = m.getDeclaringClass();
+        ClassFile cf = files.computeIfAbsent(c, OverrideGraph::read);
+        if (cf == null) {
+            return null;
+        }
+        String descriptor = descriptorOf(m);
+        byte[] code = null;
+        for (ClassFile.Member member : cf.getMethods()) {
+            if (member.getName().equals(m.getName()) && member.getDescriptor().equals(descriptor)) {
+                code = member.getCode();
+            }
+        }
+        if (code == null) {
+            return null;
+        }
+
+        Map<Integer, Integer> index = new HashMap<>();
+        Bytecode b = new Bytecode(code);
+        while (b.next()) {
+            index.put(b.offset(), index.size());
+        }
+
+        ClassFile.ConstantPool pool = cf.getConstantPool();
+        StringBuilder sb = new StringBuilder();
+        b = new Bytecode(code);
+        while (b.next()) {
+            int op = b.opcode();
+            // ldc_w and goto_w only differ from ldc and goto by the size
+            // of their operand.
+            sb.append(op == Bytecode.LDC_W ? Bytecode.LDC
+                    : op == Bytecode.GOTO_W ? Bytecode.GOTO
+                    : op == Bytecode.JSR_W ? Bytecode.JSR : op);
+            if (Bytecode.isConstantRef(op)) {
+                sb.append(' ').append(constant(pool, b.operand(), cf.getName()));
+            } else if (Bytecode.isBranch(op)) {
+                sb.append(" @").append(index.get(b.operand()));
+                if (op == Bytecode.TABLESWITCH || op == Bytecode.LOOKUPSWITCH) {
+                    for (int k = 0; k < b.value(); k++) {
+                        sb.append(' ').append(b.switchKey(k)).append(" @").append(index.get(b.switchTarget(k)));
+                    }
+                }
+            } else {
+                sb.append(' ').append(b.operand());
+            }
+            sb.append(' ').append(b.value()).append(';');
+        }
+        return sb.toString();
+    }
+
+    private static String constant(ClassFile.ConstantPool pool, int i, String self) {
+        switch (pool.tag(i)) {
+        case 7: // Class
+            String name = pool.className(i);
+            return name.equals(self) ? "this" : name;
+        case 9:
+        case 10:
+        case 11:
+            ClassFile.Ref ref = pool.ref(i);
+            if (!ref.owner.equals(self)) {
+                return ref.toString();
+            }
+            // A call to an own method leaves out the return type, which
+            // a covariant override in a subclass changes.
+            int end = ref.descriptor.indexOf(')');
+            return "this." + ref.name + ":" + (end < 0 ? ref.descriptor : ref.descriptor.substring(0, end + 1));
+        case 18:
+            return pool.ref(i) + " " + pool.bootstrap(i);
+        case 8:
+            return '"' + String.valueOf(pool.constant(i)) + '"';
+        default:
+            // Numbers, and the MethodHandle, MethodType and Dynamic
+            // constants of ldc
+            return pool.describe(i);
+        }
+    }
+
+    private static ClassFile read(Class<?> c) {
+        ClassLoader loader = c.getClassLoader();
+        if (loader == null) {
+            return null;
+        }
+        try (InputStream in = loader.getResourceAsStream(c.getName().replace('.', '/') + ".class")) {
+            return in == null ? null : ClassFile.read(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The method descriptor of m, e.g. "(ILjava/lang/String;)V".
+     */
+    static String descriptorOf(Method m) {
+        StringBuilder sb = new StringBuilder("(");
+        for (Class<?> p : m.getParameterTypes()) {
+            sb.append(descriptorOf(p));
+        }
+        return sb.append(')').append(descriptorOf(m.getReturnType())).toString();
+    }
+
+    private static String descriptorOf(Class<?> c) {
+        if (c.isArray()) {
+            return c.getName().replace('.', '/');
+        } else if (!c.isPrimitive()) {
+            return "L" + c.getName().replace('.', '/') + ";";
+        }
+        switch (c.getName()) {
+        case "boolean": return "Z";
+        case "byte": return "B";
+        case "char": return "C";
+        case "short": return "S";
+        case "int": return "I";
+        case "long": return "J";
+        case "float": return "F";
+        case "double": return "D";
+        default: return "V";
+        }
+    }
+}
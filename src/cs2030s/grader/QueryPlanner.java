@@ -0,0 +1,76 @@
+package cs2030s.grader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recognizes identical conditions and member queries while a RuleSet is
+ * parsed, and assigns each distinct one a slot.
+ * <p>
+ * Conditions are identified by their normalized text, so "ImportedCase
+ * extends Case" in two designs is one condition; member queries are
+ * identified by value, so "Contact fields type=int count == 1" and
+ * "Contact fields type=int count == 4" share one count.  During
+ * evaluation each slot is computed at most once per submission.
+ */
+final class QueryPlanner {
+    private final Map<String, RuleSet.Condition> conditions = new HashMap<>();
+    private final Map<RuleSet.MemberQuery, Integer> querySlots = new HashMap<>();
+    private final List<RuleSet.MemberQuery> queries = new ArrayList<>();
+    private int conditionReferences;
+    private int queryReferences;
+    private boolean readsBytecode;
+
+    /**
+     * Get the shared condition for the given words, parsing it if it has
+     * not been seen.
+     */
+    RuleSet.Condition condition(String[] words) {
+        conditionReferences++;
+        String key = String.join(" ", words);
+        RuleSet.Condition c = conditions.get(key);
+        if (c == null) {
+            c = RuleSet.Condition.parse(words, this);
+            c.slot = conditions.size();
+            conditions.put(key, c);
+        }
+        return c;
+    }
+
+    /**
+     * Get the slot of a member query, assigning one if it is new.
+     */
+    int query(RuleSet.MemberQuery query) {
+        queryReferences++;
+        Integer slot = querySlots.get(query);
+        if (slot == null) {
+            slot = queries.size();
+            querySlots.put(query, slot);
+            queries.add(query);
+        }
+        return slot;
+    }
+
+    /**
+     * Note that a condition depends on method bodies or static
+     * initialisers, not just on declarations.
+     */
+    void readsBytecode() {
+        readsBytecode = true;
+    }
+
+    boolean isReadingBytecode() {
+        return readsBytecode;
+    }
+
+    RuleSet.Evaluation newEvaluation() {
+        return new RuleSet.Evaluation(queries, conditions.size());
+    }
+
+    String describe() {
+        return conditionReferences + " conditions (" + conditions.size() + " distinct), "
+            + queryReferences + " member queries (" + queries.size() + " distinct)";
+    }
+}
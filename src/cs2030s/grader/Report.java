@@ -0,0 +1,137 @@
+package cs2030s.grader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the Checks of a checker as structured results.
+ * <p>
+ * The grader binds the submission being checked, its lab and a
+ * ResultSink to the grading thread.  A checker wraps each of its rules
+ * in Report.check, which runs the rule, times it and writes a
+ * CheckResult to the sink.  Outside the grader (e.g. check.sh) nothing
+ * is bound and Report.check only runs the rule.
+ */
+public class Report {
+    private static final ThreadLocal<Report> CURRENT = new ThreadLocal<>();
+
+    private final String submission;
+    private final String lab;
+    private final ResultSink sink;
+    private final List<CheckResult> recorded;
+
+    private Report(String submission, String lab, ResultSink sink, boolean record) {
+        this.submission = submission;
+        this.lab = lab;
+        this.sink = sink;
+        // An abandoned sandbox thread may still emit while the
+        // grading thread reads the results.
+        this.recorded = record ? Collections.synchronizedList(new ArrayList<>()) : null;
+    }
+
+    /**
+     * A rule of a checker.
+     */
+    @FunctionalInterface
+    public interface Rule {
+        Check run() throws Exception;
+    }
+
+    /**
+     * Run a rule and report its outcome.  A rule that throws fails with
+     * the exception as its message.
+     *
+     * @param ruleId Identifier of the rule, stable across submissions.
+     * @param rule The rule.
+     * @return The Check produced by the rule.
+     */
+    public static Check check(String ruleId, Rule rule) {
+        long start = System.nanoTime();
+        Check check;
+        try {
+            check = rule.run();
+        } catch (Exception e) {
+            check = new Check(false, e.toString());
+        }
+        emit(ruleId, check.passed(), check.getMessage(), System.nanoTime() - start);
+        return check;
+    }
+
+    /**
+     * Write a result for the submission bound to the current thread.
+     */
+    static void emit(String ruleId, boolean passed, String message, long elapsedNanos) {
+        Report report = CURRENT.get();
+        if (report == null || (report.sink == null && report.recorded == null)) {
+            return;
+        }
+        CheckResult result = new CheckResult(report.submission, report.lab, ruleId, passed,
+                message, elapsedNanos);
+        if (report.recorded != null) {
+            report.recorded.add(result);
+        }
+        if (report.sink != null) {
+            report.sink.accept(result);
+        }
+    }
+
+    static void bind(String submission, String lab, ResultSink sink) {
+        bind(submission, lab, sink, false);
+    }
+
+    /**
+     * Bind a submission to the current thread.
+     *
+     * @param record Whether to keep the results emitted until unbind.
+     */
+    static void bind(String submission, String lab, ResultSink sink, boolean record) {
+        CURRENT.set(new Report(submission, lab, sink, record));
+    }
+
+    /**
+     * Get the binding of the current thread, to attach it to another.
+     *
+     * @return The binding, or null if there is none.
+     */
+    static Report current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind the current thread like the thread report was taken from;
+     * results of both go to the same sink and recording.
+     */
+    static void attach(Report report) {
+        if (report != null) {
+            CURRENT.set(report);
+        }
+    }
+
+    /**
+     * Get the results emitted so far on the current thread's binding.
+     *
+     * @return A copy of the results, or null if they are not recorded.
+     */
+    static List<CheckResult> recorded() {
+        Report report = CURRENT.get();
+        if (report == null || report.recorded == null) {
+            return null;
+        }
+        synchronized (report.recorded) {
+            return new ArrayList<>(report.recorded);
+        }
+    }
+
+    /**
+     * Unbind the current thread.
+     *
+     * @return The results emitted since bind, or null if they were not
+     *     recorded.
+     */
+    static List<CheckResult> unbind() {
+        Report report = CURRENT.get();
+        CURRENT.remove();
+        return report == null ? null : report.recorded;
+    }
+}
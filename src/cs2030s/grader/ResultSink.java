@@ -0,0 +1,126 @@
+package cs2030s.grader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Destination for CheckResults.  Results are written one at a time as
+ * they are produced, so a batch report never has to be held in memory.
+ * Sinks are safe to use from several grading threads.
+ */
+public abstract class ResultSink implements AutoCloseable {
+    private final Writer out;
+
+    ResultSink(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Open a sink writing to a file.  The format follows the extension:
+     * ".csv" gives CSV, anything else JSON Lines.
+     *
+     * @param file The report file, which is overwritten.
+     * @return The sink.
+     */
+    public static ResultSink open(Path file) throws IOException {
+        BufferedWriter out = Files.newBufferedWriter(file);
+        return file.toString().endsWith(".csv") ? new Csv(out) : new JsonLines(out);
+    }
+
+    /**
+     * Write one result.
+     *
+     * @param result The result to write.
+     */
+    public synchronized void accept(CheckResult result) {
+        try {
+            out.write(format(result));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    abstract String format(CheckResult result);
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * One JSON object per line.
+     */
+    static class JsonLines extends ResultSink {
+        JsonLines(Writer out) {
+            super(out);
+        }
+
+        @Override
+        String format(CheckResult r) {
+            return "{\"submission\":" + quote(r.getSubmission())
+                + ",\"lab\":" + quote(r.getLab())
+                + ",\"rule\":" + quote(r.getRule())
+                + ",\"passed\":" + r.passed()
+                + ",\"message\":" + quote(r.getMessage())
+                + ",\"elapsedNanos\":" + r.getElapsedNanos() + "}";
+        }
+
+        static String quote(String s) {
+            if (s == null) {
+                return "null";
+            }
+            StringBuilder sb = new StringBuilder("\"");
+            for (char c : s.toCharArray()) {
+                switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+            return sb.append('"').toString();
+        }
+    }
+
+    /**
+     * RFC 4180 CSV with a header line.
+     */
+    static class Csv extends ResultSink {
+        Csv(Writer out) {
+            super(out);
+            try {
+                out.write("submission,lab,rule,passed,message,elapsed_nanos\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        String format(CheckResult r) {
+            return quote(r.getSubmission()) + "," + quote(r.getLab()) + "," + quote(r.getRule())
+                + "," + r.passed() + "," + quote(r.getMessage()) + "," + r.getElapsedNanos();
+        }
+
+        static String quote(String s) {
+            if (s == null) {
+                return "";
+            }
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+                return s;
+            }
+            return "\"" + s.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
@@ -0,0 +1,904 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Design rules of a lab, parsed from a spec file instead of hardcoded in
+ * a CheckDesign.java.
+ * <p>
+ * A spec has one rule per line, mirroring the checklist at the top of
+ * each CheckDesign:
+ * <pre>
+ * # comment
+ * cruise-fields:   Cruise fields all private final
+ * loader-serve:    Loader methods name=serve count == 1
+ * no-overloads:    Loader methods !synthetic name=serve count <= 1
+ * small-parent:    SmallCruise extends Cruise
+ * small-const-1:   SmallCruise fields private static final value=1 count == 1
+ * case-id:         Case fields type=int count == 1 | Case fields type=Integer count == 1
+ * cluster-cases:   Cluster fields assignable=Collection&lt;Case&gt; present
+ * holder:          some class with fields type=Cluster count == 1 and fields assignable=Map present
+ * </pre>
+ * A rule passes if any of its "|"-separated conditions holds.  A
+ * condition is one of
+ * <ul>
+ * <li>{@code C exists}, {@code C absent}, {@code C abstract}, {@code C interface}
+ * <li>{@code C extends P}, {@code C implements I}, {@code C shares-supertype D}
+ * <li>{@code C encapsulated}, {@code C reaches-into D}
+ * <li>{@code C fields|methods|constructors filter... terminal}
+ * <li>{@code some class with M and M...}, where each M is a condition of
+ * the previous form without C: some class of the submission, whatever
+ * its name, must pass all of them
+ * </ul>
+ * C is encapsulated if no other class of the submission reads or writes
+ * its fields, and C reaches into D if it reads or writes a field of D;
+ * both are found in the bytecode (see AccessGraph).
+ * Filters are the modifiers public, private, protected, package, static,
+ * final, abstract and synthetic, for methods also bridge, overriding,
+ * overridden-by-all and duplicate (each may be negated with "!"), and
+ * enum, name=N, type=T, assignable=T and value=V.  A method is
+ * overridden-by-all if every direct subclass of C overrides it, and a
+ * duplicate if it overrides a method with the same bytecode (see
+ * OverrideGraph).  T is a TypePattern matched against
+ * the generic type of fields and the generic return type of methods:
+ * type=List&lt;Case&gt; requires exactly that type, assignable=
+ * Collection&lt;? extends Case&gt; any type usable as one.  Spaces are
+ * allowed inside the angle brackets of a pattern.  The terminal is {@code count == n},
+ * {@code count >= n}, {@code count <= n}, {@code present} or
+ * {@code absent}; alternatively {@code all} before the filters requires
+ * every member to match them.
+ * <p>
+ * A line {@code design <name>} starts an alternative design: the rules
+ * after it, up to the next design line, belong to that design.  Rules
+ * before the first design line always apply; a submission must also
+ * pass every rule of at least one design (as midterm/CheckDesignv2 does
+ * with its two designs).
+ * <p>
+ * Rules are parsed once and planned by a QueryPlanner: identical
+ * conditions and identical member queries, within and across designs,
+ * are evaluated once per submission and memoized, so a rubric with
+ * alternatives costs no more than the union of its distinct checks.
+ */
+public class RuleSet {
+    private final List<Rule> common;
+    private final Map<String, List<Rule>> designs;
+    private final QueryPlanner planner;
+
+    RuleSet(List<Rule> common, Map<String, List<Rule>> designs, QueryPlanner planner) {
+        this.common = Collections.unmodifiableList(common);
+        this.designs = Collections.unmodifiableMap(designs);
+        this.planner = planner;
+    }
+
+    /**
+     * Parse a rule spec file.
+     *
+     * @param spec The spec file.
+     * @return The parsed rules.
+     * @throws IllegalArgumentException Thrown if a line is not a valid rule.
+     */
+    public static RuleSet parse(Path spec) throws IOException {
+        return parse(spec.getFileName().toString(), Files.readAllLines(spec));
+    }
+
+    static RuleSet parse(String source, List<String> lines) {
+        QueryPlanner planner = new QueryPlanner();
+        List<Rule> common = new ArrayList<>();
+        Map<String, List<Rule>> designs = new LinkedHashMap<>();
+        List<Rule> current = common;
+        String prefix = "";
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int hash = line.indexOf('#');
+            if (hash >= 0) {
+                line = line.substring(0, hash);
+            }
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                if (line.startsWith("design ")) {
+                    String design = line.substring(7).strip();
+                    if (designs.containsKey(design)) {
+                        throw new IllegalArgumentException("duplicate design: " + design);
+                    }
+                    current = new ArrayList<>();
+                    designs.put(design, current);
+                    prefix = design + "/";
+                } else {
+                    current.add(Rule.parse(line, prefix, planner));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(source + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new RuleSet(common, designs, planner);
+    }
+
+    /**
+     * Get all rules: the common ones first, then those of each design.
+     * @return List of rules
+     */
+    public List<Rule> getRules() {
+        List<Rule> rules = new ArrayList<>(common);
+        designs.values().forEach(rules::addAll);
+        return rules;
+    }
+
+    /**
+     * Check if some rule depends on code (method bodies, static
+     * initialisers) rather than only on the declarations of classes.
+     * @return true if so
+     */
+    public boolean readsBytecode() {
+        return planner.isReadingBytecode();
+    }
+
+    /**
+     * Describe how much the planner shared, e.g. for logging.
+     * @return Rule, condition and query counts
+     */
+    public String describePlan() {
+        return getRules().size() + " rules, " + planner.describe();
+    }
+
+    /**
+     * Evaluate every rule against the submission bound to the current
+     * thread, reporting each outcome through Report.
+     * <p>
+     * If the spec has designs, an extra "design" check records whether
+     * any design matched.  Failures of the designs that did not match
+     * are only returned when none matched.
+     *
+     * @return The Checks worth showing to the student, in spec order.
+     */
+    public List<Check> evaluate() {
+        Evaluation evaluation = planner.newEvaluation();
+        List<Check> checks = evaluate(common, evaluation);
+        if (designs.isEmpty()) {
+            return checks;
+        }
+
+        List<Check> failures = new ArrayList<>();
+        String matched = null;
+        for (Map.Entry<String, List<Rule>> design : designs.entrySet()) {
+            List<Check> results = evaluate(design.getValue(), evaluation);
+            if (results.stream().allMatch(Check::passed)) {
+                matched = matched == null ? design.getKey() : matched;
+            } else {
+                failures.addAll(results);
+            }
+        }
+        boolean pass = matched != null;
+        Report.emit("design", pass, pass ? "Matched design " + matched
+                : "Design matches none of: " + String.join(", ", designs.keySet()), 0);
+        if (!pass) {
+            checks.addAll(failures);
+            checks.add(new Check(false, "Your design did not pass the auto-grader. Please revisit the question"));
+        }
+        return checks;
+    }
+
+    private static List<Check> evaluate(List<Rule> rules, Evaluation evaluation) {
+        List<Check> checks = new ArrayList<>();
+        for (Rule rule : rules) {
+            checks.add(Report.check(rule.id, () -> new Check(rule.test(evaluation), rule.message())));
+        }
+        return checks;
+    }
+
+    /**
+     * A named rule: a disjunction of conditions.
+     */
+    public static class Rule {
+        private final String id;
+        private final String text;
+        private final List<Condition> conditions;
+
+        Rule(String id, String text, List<Condition> conditions) {
+            this.id = id;
+            this.text = text;
+            this.conditions = conditions;
+        }
+
+        static Rule parse(String line, String prefix, QueryPlanner planner) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("expected '<rule-id>: <condition>'");
+            }
+            String id = prefix + line.substring(0, colon).strip();
+            String text = line.substring(colon + 1).strip();
+            List<Condition> conditions = new ArrayList<>();
+            for (String alternative : text.split("\\|")) {
+                conditions.add(planner.condition(words(alternative)));
+            }
+            return new Rule(id, text, conditions);
+        }
+
+        /**
+         * Split a condition into words at spaces, except spaces inside
+         * the angle brackets of a type pattern.  A "&lt;" only opens
+         * brackets right after a type name, so the comparisons of
+         * "count &lt;= 1" stay words of their own.
+         */
+        static String[] words(String condition) {
+            List<String> words = new ArrayList<>();
+            StringBuilder word = new StringBuilder();
+            int depth = 0;
+            for (char c : condition.strip().toCharArray()) {
+                if (Character.isWhitespace(c) && depth == 0) {
+                    if (word.length() > 0) {
+                        words.add(word.toString());
+                        word.setLength(0);
+                    }
+                    continue;
+                }
+                if (c == '<' && word.length() > 0
+                        && Character.isJavaIdentifierPart(word.charAt(word.length() - 1))) {
+                    depth++;
+                } else if (c == '<' && depth > 0) {
+                    // e.g. the inner bracket of "Map<String, List <Case>>"
+                    depth++;
+                } else if (c == '>' && depth > 0) {
+                    depth--;
+                }
+                word.append(c);
+            }
+            if (word.length() > 0) {
+                words.add(word.toString());
+            }
+            return words.toArray(new String[0]);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        boolean test(Evaluation evaluation) {
+            for (Condition c : conditions) {
+                if (c.test(evaluation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String message() {
+            return "Rule " + id + " failed: " + text;
+        }
+
+        @Override
+        public String toString() {
+            return id + ": " + text;
+        }
+    }
+
+    /**
+     * One alternative of a rule.  The planner gives every distinct
+     * condition a slot, in which its outcome is memoized per submission.
+     */
+    abstract static class Condition {
+        int slot;
+
+        abstract boolean compute(Evaluation evaluation);
+
+        final boolean test(Evaluation evaluation) {
+            return evaluation.test(this);
+        }
+
+        static Condition parse(String[] words, QueryPlanner planner) {
+            if (words.length < 2) {
+                throw new IllegalArgumentException("incomplete condition: " + String.join(" ", words));
+            }
+            if (words[0].equals("some") && words[1].equals("class")) {
+                return SomeClassCondition.parse(words, planner);
+            }
+            String name = words[0];
+            switch (words[1]) {
+            case "exists":
+            case "absent":
+            case "abstract":
+            case "interface":
+            case "encapsulated":
+                if (words.length != 2) {
+                    // e.g. a typo such as "Case exists extends Base"
+                    throw new IllegalArgumentException("expected '<class> " + words[1] + "', got: "
+                            + String.join(" ", words));
+                }
+                break;
+            default:
+                break;
+            }
+            switch (words[1]) {
+            case "exists":
+                return new ClassCondition(e -> e.kelas(name) != null);
+            case "absent":
+                return new ClassCondition(e -> e.kelas(name) == null);
+            case "abstract":
+                return new ClassCondition(e -> e.kelas(name) != null && e.kelas(name).isAbstract());
+            case "interface":
+                return new ClassCondition(e -> e.kelas(name) != null && e.kelas(name).isInterface());
+            case "extends":
+                return relation(words, (k, p) -> k.doesExtend(p));
+            case "implements":
+                return relation(words, (k, p) -> k.doesImplement(p));
+            case "shares-supertype":
+                return relation(words, (k, p) -> k.shareCommonSupertypeWith(p));
+            case "reaches-into":
+                planner.readsBytecode();
+                return relation(words, (k, p) -> k.reachesInto(p));
+            case "encapsulated":
+                planner.readsBytecode();
+                return new ClassCondition(e -> {
+                    try {
+                        return e.kelas(name) != null && e.kelas(name).isEncapsulated();
+                    } catch (IOException ex) {
+                        throw new IllegalStateException("cannot read the submission's classes", ex);
+                    }
+                });
+            case "fields":
+            case "methods":
+            case "constructors":
+                return MemberCondition.parse(words, planner, true);
+            default:
+                throw new IllegalArgumentException("unknown condition: " + words[1]);
+            }
+        }
+
+        private static Condition relation(String[] words, Relation relation) {
+            if (words.length != 3) {
+                throw new IllegalArgumentException("expected '<class> " + words[1] + " <class>'");
+            }
+            return new ClassCondition(e -> {
+                Kelas k = e.kelas(words[0]);
+                Kelas p = e.kelas(words[2]);
+                try {
+                    return k != null && p != null && relation.test(k, p);
+                } catch (ClassNotFoundException ex) {
+                    return false;
+                } catch (IOException ex) {
+                    throw new IllegalStateException("cannot read the submission's classes", ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * A condition on classes rather than members.
+     */
+    static final class ClassCondition extends Condition {
+        private final Predicate<Evaluation> pred;
+
+        ClassCondition(Predicate<Evaluation> pred) {
+            this.pred = pred;
+        }
+
+        @Override
+        boolean compute(Evaluation evaluation) {
+            return pred.test(evaluation);
+        }
+    }
+
+    @FunctionalInterface
+    interface Relation {
+        boolean test(Kelas k, Kelas other) throws ClassNotFoundException, IOException;
+    }
+
+    /**
+     * The members of a class selected by kind and filters.  Queries are
+     * values, so the planner can recognize identical queries from
+     * different rules and give them one memoized count.
+     */
+    static final class MemberQuery {
+        static final int ACCESS = Modifier.PUBLIC | Modifier.PRIVATE | Modifier.PROTECTED;
+        // Class file access flags that reflection keeps in getModifiers()
+        // but Modifier has no public constant for.
+        static final int BRIDGE = 0x0040;
+        static final int SYNTHETIC = 0x1000;
+        // Relations of a method to the methods it overrides or that
+        // override it.
+        static final int OVERRIDING = 1;
+        static final int OVERRIDDEN_BY_ALL = 2;
+        static final int DUPLICATE = 4;
+
+        final String className;
+        final String kind;
+        final int required;
+        final int forbidden;
+        final boolean anyAccess;
+        final Boolean isEnum;
+        final int overrides;
+        final int overridesForbidden;
+        final String name;
+        final TypePattern type;
+        final TypePattern assignable;
+        final String value;
+
+        MemberQuery(String className, String kind, int required, int forbidden, boolean anyAccess,
+                Boolean isEnum, int overrides, int overridesForbidden, String name, TypePattern type,
+                TypePattern assignable, String value) {
+            this.className = className;
+            this.kind = kind;
+            this.required = required;
+            this.forbidden = forbidden;
+            this.anyAccess = anyAccess;
+            this.isEnum = isEnum;
+            this.overrides = overrides;
+            this.overridesForbidden = overridesForbidden;
+            this.name = name;
+            this.type = type;
+            this.assignable = assignable;
+            this.value = value;
+        }
+
+        /**
+         * The unfiltered query for the same members.
+         */
+        MemberQuery unfiltered() {
+            return new MemberQuery(className, kind, 0, 0, false, null, 0, 0, null, null, null, null);
+        }
+
+        /**
+         * Count the matching members of a class.
+         *
+         * @param k The class.
+         * @param file Its class file, for value=; null if not needed.
+         */
+        int count(Kelas k, KelasFile file) {
+            switch (kind) {
+            case "fields":
+                return count(k.getFields(), file);
+            case "methods":
+                return count(k.getMethods(), file);
+            default:
+                return count(k.getConstructors(), file);
+            }
+        }
+
+        private <T extends Member, K extends KelasMembers<T, K>> int count(K members, KelasFile file) {
+            K m = members.modifier(required, true).modifier(forbidden, false);
+            if (anyAccess) {
+                m = m.and(x -> (x.getModifiers() & ACCESS) != 0);
+            }
+            if (isEnum != null) {
+                m = m.and(x -> Enum.class.isAssignableFrom(typeOf(x)) == isEnum);
+            }
+            if ((overrides | overridesForbidden) != 0) {
+                OverrideGraph graph = (overrides | overridesForbidden) == OVERRIDING ? null : overrideGraph();
+                m = m.and(x -> x instanceof Method
+                        && (overridesOf((Method) x, graph) & (overrides | overridesForbidden)) == overrides);
+            }
+            if (name != null) {
+                m = m.and(x -> x.getName().equals(name));
+            }
+            if (type != null && !type.isGeneric()) {
+                m = m.and(x -> type.matches(typeOf(x)));
+            } else if (type != null) {
+                m = m.and(x -> type.matches(genericTypeOf(x)));
+            }
+            if (assignable != null) {
+                m = m.and(x -> assignable.isAssignableFrom(genericTypeOf(x)));
+            }
+            if (value != null) {
+                m = m.and(x -> x instanceof Field && valueMatches((Field) x, value, file));
+            }
+            return m.count();
+        }
+
+        private static OverrideGraph overrideGraph() {
+            try {
+                return OverrideGraph.current();
+            } catch (ClassNotFoundException | IOException e) {
+                throw new IllegalStateException("cannot index the submission's classes", e);
+            }
+        }
+
+        /**
+         * The override relations of a method, as a mask of OVERRIDING,
+         * OVERRIDDEN_BY_ALL and DUPLICATE.  Only OVERRIDING is computed
+         * without a graph.
+         */
+        static int overridesOf(Method m, OverrideGraph graph) {
+            int mask = MethodIndex.overriddenBy(m) == null ? 0 : OVERRIDING;
+            if (graph != null && graph.isOverriddenByAll(m)) {
+                mask |= OVERRIDDEN_BY_ALL;
+            }
+            if (graph != null && graph.isDuplicate(m)) {
+                mask |= DUPLICATE;
+            }
+            return mask;
+        }
+
+        static Class<?> typeOf(Member m) {
+            if (m instanceof Field) {
+                return ((Field) m).getType();
+            } else if (m instanceof Method) {
+                return ((Method) m).getReturnType();
+            }
+            return void.class;
+        }
+
+        static Type genericTypeOf(Member m) {
+            if (m instanceof Field) {
+                return ((Field) m).getGenericType();
+            } else if (m instanceof Method) {
+                return ((Method) m).getGenericReturnType();
+            }
+            return void.class;
+        }
+
+        /**
+         * Compare the value of a static field; numbers compare by value,
+         * so 40 matches 40.0.  A compile-time constant is read from the
+         * class file, so only a field set by a static initialiser makes
+         * its class initialise.
+         */
+        static boolean valueMatches(Field f, String expected, KelasFile file) {
+            if (!Modifier.isStatic(f.getModifiers())) {
+                return false;
+            }
+            Object constant = file == null ? null : file.getConstantValue(f.getName());
+            if (constant != null) {
+                return valueMatches(constant, expected);
+            } else if (!f.trySetAccessible()) {
+                return false;
+            }
+            try {
+                return valueMatches(f.get(null), expected);
+            } catch (IllegalAccessException e) {
+                return false;
+            }
+        }
+
+        private static boolean valueMatches(Object actual, String expected) {
+            try {
+                if (actual instanceof Number) {
+                    return ((Number) actual).doubleValue() == Double.parseDouble(expected);
+                }
+                return String.valueOf(actual).equals(expected);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MemberQuery)) {
+                return false;
+            }
+            MemberQuery q = (MemberQuery) o;
+            return className.equals(q.className) && kind.equals(q.kind)
+                && required == q.required && forbidden == q.forbidden && anyAccess == q.anyAccess
+                && Objects.equals(isEnum, q.isEnum)
+                && overrides == q.overrides && overridesForbidden == q.overridesForbidden
+                && Objects.equals(name, q.name)
+                && Objects.equals(type, q.type) && Objects.equals(assignable, q.assignable)
+                && Objects.equals(value, q.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(className, kind, required, forbidden, anyAccess, isEnum, overrides,
+                    overridesForbidden, name, type, assignable, value);
+        }
+    }
+
+    /**
+     * A condition on the number of members matching a query.
+     */
+    static final class MemberCondition extends Condition {
+        private final MemberQuery query;
+        private final int querySlot;
+        private final int unfilteredSlot;
+        private final String op;
+        private final int bound;
+
+        MemberCondition(MemberQuery query, int querySlot, int unfilteredSlot, String op, int bound) {
+            this.query = query;
+            this.querySlot = querySlot;
+            this.unfilteredSlot = unfilteredSlot;
+            this.op = op;
+            this.bound = bound;
+        }
+
+        /**
+         * Parse a member condition.
+         *
+         * @param shared Whether the planner memoizes its counts; false
+         *     for the conditions of a SomeClassCondition, which are
+         *     tested on every class in turn.
+         */
+        static MemberCondition parse(String[] words, QueryPlanner planner, boolean shared) {
+            int required = 0;
+            int forbidden = 0;
+            boolean anyAccess = false;
+            Boolean isEnum = null;
+            int overrides = 0;
+            int overridesForbidden = 0;
+            String name = null;
+            TypePattern type = null;
+            TypePattern assignable = null;
+            String value = null;
+            boolean all = false;
+            String op = null;
+            int bound = 0;
+
+            List<String> rest = Arrays.asList(words).subList(2, words.length);
+            for (int i = 0; i < rest.size(); i++) {
+                String w = rest.get(i);
+                boolean negated = w.startsWith("!");
+                String word = negated ? w.substring(1) : w;
+                int modifier = modifierOf(word, words[1].equals("methods"));
+                int relation = words[1].equals("methods") ? relationOf(word) : 0;
+
+                if (i == 0 && w.equals("all")) {
+                    all = true;
+                } else if (modifier != 0) {
+                    if (negated) {
+                        forbidden |= modifier;
+                    } else {
+                        required |= modifier;
+                    }
+                } else if (word.equals("package")) {
+                    if (negated) {
+                        anyAccess = true;
+                    } else {
+                        forbidden |= MemberQuery.ACCESS;
+                    }
+                } else if (word.equals("enum")) {
+                    isEnum = !negated;
+                } else if (relation != 0) {
+                    if (negated) {
+                        overridesForbidden |= relation;
+                    } else {
+                        overrides |= relation;
+                    }
+                } else if (w.startsWith("name=")) {
+                    name = w.substring(5);
+                } else if (w.startsWith("type=")) {
+                    type = TypePattern.parse(w.substring(5));
+                } else if (w.startsWith("assignable=")) {
+                    assignable = TypePattern.parse(w.substring(11));
+                } else if (w.startsWith("value=")) {
+                    value = w.substring(6);
+                } else if (!all && (w.equals("present") || w.equals("absent")) && i == rest.size() - 1) {
+                    op = w;
+                } else if (!all && w.equals("count") && i == rest.size() - 3) {
+                    op = rest.get(i + 1);
+                    if (!op.equals("==") && !op.equals(">=") && !op.equals("<=")) {
+                        throw new IllegalArgumentException("unknown comparison: " + op);
+                    }
+                    bound = Integer.parseInt(rest.get(i + 2));
+                    break;
+                } else {
+                    throw new IllegalArgumentException("unknown filter: " + w);
+                }
+            }
+            if (all) {
+                op = "all";
+            } else if (op == null) {
+                throw new IllegalArgumentException("missing terminal (count/present/absent)");
+            }
+            MemberQuery query = new MemberQuery(words[0], words[1], required, forbidden, anyAccess,
+                    isEnum, overrides, overridesForbidden, name, type, assignable, value);
+            // Static fields may be set by a static initialiser, and
+            // duplicates are found by comparing code.
+            if (value != null || ((overrides | overridesForbidden) & MemberQuery.DUPLICATE) != 0) {
+                planner.readsBytecode();
+            }
+            if (!shared) {
+                return new MemberCondition(query, -1, -1, op, bound);
+            }
+            return new MemberCondition(query, planner.query(query), planner.query(query.unfiltered()), op, bound);
+        }
+
+        private static int relationOf(String word) {
+            switch (word) {
+            case "overriding": return MemberQuery.OVERRIDING;
+            case "overridden-by-all": return MemberQuery.OVERRIDDEN_BY_ALL;
+            case "duplicate": return MemberQuery.DUPLICATE;
+            default: return 0;
+            }
+        }
+
+        private static int modifierOf(String word, boolean methods) {
+            switch (word) {
+            case "synthetic": return MemberQuery.SYNTHETIC;
+            case "bridge": return methods ? MemberQuery.BRIDGE : 0;
+            case "public": return Modifier.PUBLIC;
+            case "private": return Modifier.PRIVATE;
+            case "protected": return Modifier.PROTECTED;
+            case "static": return Modifier.STATIC;
+            case "final": return Modifier.FINAL;
+            case "abstract": return Modifier.ABSTRACT;
+            default: return 0;
+            }
+        }
+
+        @Override
+        boolean compute(Evaluation e) {
+            int n = e.count(querySlot);
+            if (n < 0) {
+                return false;
+            }
+            return holds(n, op.equals("all") ? e.count(unfilteredSlot) : 0);
+        }
+
+        /**
+         * Test the condition on the given class instead of the one named
+         * in the rule, without memoizing the counts.
+         */
+        boolean holdsFor(Kelas k, Evaluation e) {
+            int n = query.count(k, query.value == null ? null : e.file(k));
+            return holds(n, op.equals("all") ? query.unfiltered().count(k, null) : 0);
+        }
+
+        private boolean holds(int n, int unfiltered) {
+            switch (op) {
+            case "all": return n == unfiltered;
+            case "present": return n > 0;
+            case "absent": return n == 0;
+            case "==": return n == bound;
+            case ">=": return n >= bound;
+            default: return n <= bound;
+            }
+        }
+    }
+
+    /**
+     * A condition that holds if some class of the submission passes
+     * every one of a list of member conditions, e.g. a class that the
+     * spec cannot name because each student names it differently.
+     */
+    static final class SomeClassCondition extends Condition {
+        private final List<MemberCondition> conditions;
+
+        SomeClassCondition(List<MemberCondition> conditions) {
+            this.conditions = conditions;
+        }
+
+        /**
+         * Parse "some class with C1 and C2 ...", where each Ci is a member
+         * condition without its class name, e.g. "fields type=Cluster
+         * count == 1".
+         */
+        static SomeClassCondition parse(String[] words, QueryPlanner planner) {
+            if (words.length < 3 || !words[2].equals("with")) {
+                throw new IllegalArgumentException("expected 'some class with <condition> [and <condition>...]'");
+            }
+            List<MemberCondition> conditions = new ArrayList<>();
+            List<String> current = new ArrayList<>(List.of("*"));
+            for (int i = 3; i <= words.length; i++) {
+                if (i < words.length && !words[i].equals("and")) {
+                    current.add(words[i]);
+                    continue;
+                }
+                if (current.size() < 3 || !List.of("fields", "methods", "constructors").contains(current.get(1))) {
+                    throw new IllegalArgumentException("expected fields, methods or constructors after "
+                            + (conditions.isEmpty() ? "'with'" : "'and'"));
+                }
+                conditions.add(MemberCondition.parse(current.toArray(new String[0]), planner, false));
+                current = new ArrayList<>(List.of("*"));
+            }
+            return new SomeClassCondition(conditions);
+        }
+
+        @Override
+        boolean compute(Evaluation e) {
+            for (String name : e.classNames()) {
+                Kelas k = e.kelas(name);
+                if (k != null && conditions.stream().allMatch(c -> c.holdsFor(k, e))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Per-submission state: resolved classes, and the memoized counts
+     * and outcomes in the slots assigned by the planner.
+     */
+    static class Evaluation {
+        private static final int UNKNOWN = -2;
+        private static final int NO_CLASS = -1;
+
+        private final List<MemberQuery> queries;
+        private final Map<String, Kelas> classes = new HashMap<>();
+        private final Map<String, KelasFile> files = new HashMap<>();
+        private List<String> classNames;
+        private final int[] counts;
+        private final byte[] outcomes;
+
+        Evaluation(List<MemberQuery> queries, int conditions) {
+            this.queries = queries;
+            this.counts = new int[queries.size()];
+            this.outcomes = new byte[conditions];
+            Arrays.fill(counts, UNKNOWN);
+        }
+
+        /**
+         * Resolve a class of the submission.
+         * @return The Kelas, or null if there is no such class
+         */
+        Kelas kelas(String name) {
+            if (!classes.containsKey(name)) {
+                Kelas k;
+                try {
+                    k = new Kelas(name);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    k = null;
+                }
+                classes.put(name, k);
+            }
+            return classes.get(name);
+        }
+
+        /**
+         * Read the class file of a class of the submission.
+         * @return The KelasFile, or null if the class file cannot be read
+         */
+        KelasFile file(Kelas k) {
+            String name = k.getC().getName();
+            if (!files.containsKey(name)) {
+                KelasFile file;
+                try {
+                    file = KelasFile.forName(name, k.getC().getClassLoader());
+                } catch (IOException e) {
+                    file = null;
+                }
+                files.put(name, file);
+            }
+            return files.get(name);
+        }
+
+        /**
+         * List the classes of the submission, the checker aside.
+         */
+        List<String> classNames() {
+            if (classNames == null) {
+                classNames = new ArrayList<>(KelasUtils.getClassNames(KelasUtils.getClassLoader()));
+                classNames.remove(GradingEngine.CHECKER);
+            }
+            return classNames;
+        }
+
+        /**
+         * Count the members matching the query in a slot.
+         * @return The count, or a negative number if the class does not exist
+         */
+        int count(int slot) {
+            if (counts[slot] == UNKNOWN) {
+                MemberQuery query = queries.get(slot);
+                Kelas k = kelas(query.className);
+                counts[slot] = k == null ? NO_CLASS : query.count(k, query.value == null ? null : file(k));
+            }
+            return counts[slot];
+        }
+
+        boolean test(Condition c) {
+            if (outcomes[c.slot] == 0) {
+                outcomes[c.slot] = (byte) (c.compute(this) ? 1 : -1);
+            }
+            return outcomes[c.slot] > 0;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the checks of one submission on a thread of its own, with a
+ * CPU-time budget and a limit on the bytes it allocates.
+ * <p>
+ * The grading thread starts the sandbox thread and polls its CPU time
+ * and allocated bytes.  A thread over budget is interrupted and, if it
+ * does not finish within a grace period, stopped with Thread.stop; one
+ * that survives even that, or runs on a JDK where Thread.stop is no
+ * longer supported (20 and later), is abandoned as a daemon thread.  A thread
+ * that blocks instead of spinning is stopped the same way after ten
+ * times the CPU budget of wall-clock time.  Either way the grading
+ * thread moves on to the next submission, so a pathological submission
+ * (an infinite loop or a huge allocation in a static initialiser, say)
+ * cannot stall a batch.
+ * <p>
+ * The sandbox thread inherits the Report binding of the grading thread
+ * and captures its own output.  A violation is reported as a failed
+ * "sandbox" result and appended to the output.
+ * <p>
+ * A thread cannot be kept from ending the JVM, so code that refers to
+ * System.exit, Runtime.exit or Runtime.halt is refused before it is
+ * loaded (see exitViolation); a checker must return from main instead.
+ */
+public class Sandbox {
+    static final String RULE = "sandbox";
+
+    private static final long POLL_MILLIS = 10;
+    private static final long GRACE_MILLIS = 100;
+    private static final long STOP_MILLIS = 1000;
+
+    private final long cpuNanos;
+    private final long maxAllocBytes;
+
+    /**
+     * Construct a sandbox.
+     *
+     * @param cpuMillis CPU-time budget per submission; 0 for none.
+     * @param maxAllocBytes Maximum bytes allocated per submission; 0 for
+     *     none.
+     */
+    public Sandbox(long cpuMillis, long maxAllocBytes) {
+        this.cpuNanos = cpuMillis * 1_000_000L;
+        this.maxAllocBytes = maxAllocBytes;
+    }
+
+    /**
+     * Run checks on a sandbox thread and wait for them to finish or be
+     * cancelled.
+     *
+     * @param name Name of the submission, used to name the thread.
+     * @param loader The context class loader of the thread.
+     * @param checks The checks.
+     * @return Everything the checks printed, followed by the violation
+     *     if they were cancelled.
+     */
+    String run(String name, ClassLoader loader, Runnable checks) {
+        Report report = Report.current();
+        String[] output = {""};
+        Thread thread = new Thread(() -> {
+            Report.attach(report);
+            OutputCapture.begin();
+            try {
+                checks.run();
+            } finally {
+                output[0] = OutputCapture.end();
+                Report.unbind();
+            }
+        }, "kelas-sandbox-" + name);
+        thread.setContextClassLoader(loader);
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, e) -> { });
+
+        long start = System.nanoTime();
+        thread.start();
+        boolean interrupted = false;
+        String violation;
+        try {
+            violation = watch(thread, start);
+        } catch (InterruptedException e) {
+            violation = "Grading interrupted";
+            interrupted = true;
+        }
+        if (violation == null) {
+            return output[0];
+        }
+        String message = cancel(thread, violation);
+        Report.emit(RULE, false, message, System.nanoTime() - start);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return output[0] + message + "\n";
+    }
+
+    /**
+     * Find a class that refers to System.exit, Runtime.exit or
+     * Runtime.halt, any of which would end the whole batch rather than
+     * the checks of one submission.  Every method reference in the
+     * constant pool counts, so System::exit is found as well as a call.
+     *
+     * @param classes Map of binary class name to class file bytes.
+     * @return The message refusing to run the classes, or null if none
+     *     of them can exit.
+     */
+    static String exitViolation(Map<String, byte[]> classes) {
+        for (Map.Entry<String, byte[]> e : new TreeMap<>(classes).entrySet()) {
+            String exit;
+            try {
+                exit = exitOf(ClassFile.read(e.getValue()).getConstantPool());
+            } catch (IOException ex) {
+                exit = null;
+            }
+            if (exit == null) {
+                continue;
+            }
+            String who = e.getKey().equals(GradingEngine.CHECKER) ? "the checker" : e.getKey();
+            return "Sandbox: " + who + " calls " + exit + ", which would end the batch; checks not run";
+        }
+        return null;
+    }
+
+    private static String exitOf(ClassFile.ConstantPool pool) {
+        for (int i = 1; i < pool.size(); i++) {
+            if (pool.tag(i) != 10) { // Methodref
+                continue;
+            }
+            ClassFile.Ref ref = pool.ref(i);
+            boolean system = ref.owner.equals("java.lang.System");
+            boolean runtime = ref.owner.equals("java.lang.Runtime");
+            if ((system || runtime) && ref.name.equals("exit") || runtime && ref.name.equals("halt")) {
+                return ref.owner.substring(10) + "." + ref.name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait for the thread to finish, polling its resource usage.
+     *
+     * @return null if it finished within its budget, otherwise what it
+     *     exceeded.
+     */
+    private String watch(Thread thread, long start) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long wallNanos = cpuNanos * 10;
+        while (true) {
+            thread.join(POLL_MILLIS);
+            if (!thread.isAlive()) {
+                return null;
+            }
+            long id = thread.getId();
+            if (cpuNanos > 0 && threads.isThreadCpuTimeSupported()
+                    && threads.getThreadCpuTime(id) > cpuNanos) {
+                return "CPU time limit of " + cpuNanos / 1_000_000 + " ms exceeded";
+            }
+            if (cpuNanos > 0 && System.nanoTime() - start > wallNanos) {
+                return "Wall-clock limit of " + wallNanos / 1_000_000 + " ms exceeded";
+            }
+            if (maxAllocBytes > 0 && allocatedBytes(threads, id) > maxAllocBytes) {
+                return "Allocation limit of " + maxAllocBytes / (1024 * 1024) + " MB exceeded";
+            }
+        }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads, long id) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(id);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Interrupt the thread, then stop it if it ignores the interrupt.
+     *
+     * @return The message reporting the violation.
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    private static String cancel(Thread thread, String violation) {
+        thread.interrupt();
+        try {
+            thread.join(GRACE_MILLIS);
+            if (thread.isAlive()) {
+                // Thread.stop is the only way to end code that ignores
+                // interrupts, e.g. a student's infinite loop.  From JDK
+                // 20 it throws instead; the daemon thread is abandoned.
+                try {
+                    thread.stop();
+                    thread.join(STOP_MILLIS);
+                } catch (UnsupportedOperationException e) {
+                    // Left running, and reported as abandoned below.
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "Sandbox: " + violation + (thread.isAlive() ? "; thread abandoned" : "; checks cancelled");
+    }
+}
@@ -0,0 +1,165 @@
+package cs2030s.grader;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Locality-sensitive hashing index of DesignFingerprints, which finds
+ * the pairs of submissions with similar designs without comparing every
+ * pair.
+ * <p>
+ * The HASHES values of a fingerprint are cut into bands of equal size,
+ * and each band is hashed into a bucket of its own table.  Two
+ * submissions become a candidate pair if they share a bucket in any
+ * band; candidates are then kept if their estimated similarity reaches
+ * the threshold.  The band size is chosen from the threshold, as the
+ * largest for which the LSH threshold (1/bands)^(1/rows) is at most 90%
+ * of it, so pairs at the threshold are found with high probability
+ * while dissimilar submissions rarely share a bucket.  Adding n
+ * submissions and listing the pairs then takes time linear in n plus
+ * the number of candidates.
+ * <p>
+ * Every submission of a lab shares the names the spec prescribes, so
+ * unrelated designs are already somewhat similar; the threshold should
+ * be set well above that baseline.
+ */
+public class SimilarityIndex {
+    private final double threshold;
+    private final int rows;
+    private final List<String> submissions = new ArrayList<>();
+    private final List<DesignFingerprint> fingerprints = new ArrayList<>();
+    private final List<Map<Long, List<Integer>>> buckets = new ArrayList<>();
+
+    /**
+     * Construct an empty index.
+     *
+     * @param threshold The minimum estimated similarity of a reported
+     *     pair, in (0, 1].
+     */
+    public SimilarityIndex(double threshold) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("similarity threshold must be in (0, 1]: " + threshold);
+        }
+        this.threshold = threshold;
+        this.rows = rowsFor(threshold);
+        for (int b = 0; b < DesignFingerprint.HASHES / rows; b++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    private static int rowsFor(double threshold) {
+        int best = 1;
+        for (int r = 1; r <= DesignFingerprint.HASHES; r *= 2) {
+            int bands = DesignFingerprint.HASHES / r;
+            if (Math.pow(1.0 / bands, 1.0 / r) <= 0.9 * threshold) {
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Add a submission.  Submissions without classes are ignored.
+     *
+     * @param submission Name of the submission.
+     * @param fingerprint Its fingerprint.
+     */
+    public void add(String submission, DesignFingerprint fingerprint) {
+        if (fingerprint.getShingleCount() == 0) {
+            return;
+        }
+        int id = submissions.size();
+        submissions.add(submission);
+        fingerprints.add(fingerprint);
+        for (int b = 0; b < buckets.size(); b++) {
+            long key = fingerprint.band(b * rows, (b + 1) * rows);
+            buckets.get(b).computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+        }
+    }
+
+    /**
+     * Find the pairs of submissions whose designs are at least as
+     * similar as the threshold.
+     *
+     * @return The pairs, most similar first.
+     */
+    public List<Pair> similarPairs() {
+        Set<Long> seen = new HashSet<>();
+        List<Pair> pairs = new ArrayList<>();
+        for (Map<Long, List<Integer>> band : buckets) {
+            for (List<Integer> bucket : band.values()) {
+                for (int i = 0; i < bucket.size(); i++) {
+                    for (int j = i + 1; j < bucket.size(); j++) {
+                        int a = bucket.get(i);
+                        int b = bucket.get(j);
+                        if (!seen.add(((long) a << 32) | b)) {
+                            continue;
+                        }
+                        double similarity = fingerprints.get(a).similarity(fingerprints.get(b));
+                        if (similarity >= threshold) {
+                            pairs.add(new Pair(submissions.get(a), submissions.get(b), similarity));
+                        }
+                    }
+                }
+            }
+        }
+        pairs.sort(Comparator.comparingDouble(Pair::getSimilarity).reversed()
+                .thenComparing(Pair::getFirst).thenComparing(Pair::getSecond));
+        return pairs;
+    }
+
+    /**
+     * Get the number of submissions in the index.
+     * @return Count of submissions
+     */
+    public int size() {
+        return submissions.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Similarity index: %d submissions, %d bands of %d rows, threshold %.2f",
+                size(), buckets.size(), rows, threshold);
+    }
+
+    /**
+     * Two submissions with similar designs.
+     */
+    public static final class Pair {
+        private final String first;
+        private final String second;
+        private final double similarity;
+
+        Pair(String first, String second, double similarity) {
+            this.first = first;
+            this.second = second;
+            this.similarity = similarity;
+        }
+
+        public String getFirst() {
+            return first;
+        }
+
+        public String getSecond() {
+            return second;
+        }
+
+        /**
+         * Get the estimated Jaccard similarity of the two designs.
+         * @return Similarity between 0 and 1
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s ~ %s %.2f", first, second, similarity);
+        }
+    }
+}
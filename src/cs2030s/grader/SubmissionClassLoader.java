@@ -0,0 +1,132 @@
+package cs2030s.grader;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ClassLoader for the compiled classes of a single submission.
+ * <p>
+ * Every submission gets its own loader, so that classes with the same
+ * name (Cruise, Loader, ...) from different students never clash.  The
+ * Kelas classes themselves come from the parent loader and are shared,
+ * so the JIT work spent on them carries over from one submission to the
+ * next.
+ * <p>
+ * Once a submission is graded, release() drops the class bytes and the
+ * indexes, so that only the defined classes remain until the loader
+ * itself is collected (see LoaderPool).
+ */
+public class SubmissionClassLoader extends ClassLoader {
+    private volatile Map<String, byte[]> classes;
+    private TypeIndex typeIndex;
+    private AccessGraph accessGraph;
+    private volatile AncestorIndex ancestorIndex = new AncestorIndex();
+
+    /**
+     * Construct a loader for the given compiled classes.
+     *
+     * @param classes Map of binary class name to class file bytes.
+     * @param parent The parent loader, usually the grader's own loader.
+     */
+    public SubmissionClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+        super("submission", parent);
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        // Child first: a student class named like one on the grader's
+        // classpath must shadow it.
+        if (!classes.containsKey(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+                c = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(c);
+            }
+            return c;
+        }
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String name) {
+        if (name.endsWith(".class")) {
+            byte[] bytes = classes.get(name.substring(0, name.length() - 6).replace('/', '.'));
+            if (bytes != null) {
+                return new ByteArrayInputStream(bytes);
+            }
+        }
+        return super.getResourceAsStream(name);
+    }
+
+    /**
+     * Get the type index of this submission, building it on first use.
+     * The index is held by the loader so that it is released with it.
+     * Like Kelas(String), it loads every class without initialising it,
+     * so no static initialiser runs.
+     */
+    synchronized TypeIndex getTypeIndex() throws ClassNotFoundException {
+        if (typeIndex == null) {
+            List<Class<?>> loaded = new ArrayList<>();
+            for (String name : getClassNames()) {
+                loaded.add(Class.forName(name, false, this));
+            }
+            typeIndex = new TypeIndex(loaded);
+        }
+        return typeIndex;
+    }
+
+    /**
+     * Get the field-access and call graph of this submission, read from
+     * the class bytes on first use.  No class is loaded.
+     */
+    synchronized AccessGraph getAccessGraph() throws java.io.IOException {
+        if (accessGraph == null) {
+            accessGraph = AccessGraph.read(this, getClassNames());
+        }
+        return accessGraph;
+    }
+
+    AncestorIndex getAncestorIndex() {
+        return ancestorIndex;
+    }
+
+    /**
+     * Drop the class bytes and indexes of this submission.  Classes
+     * already defined stay usable, but no other class of the submission
+     * can be loaded and getClassNames() becomes empty.
+     */
+    synchronized void release() {
+        classes = Map.of();
+        typeIndex = null;
+        accessGraph = null;
+        ancestorIndex = new AncestorIndex();
+    }
+
+    /**
+     * Get the names of all classes of this submission.
+     * @return Sorted list of binary class names
+     */
+    public List<String> getClassNames() {
+        List<String> names = new ArrayList<>(classes.keySet());
+        Collections.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,197 @@
+package cs2030s.grader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles the sources of a submission in memory using the system
+ * JavaCompiler, so that no javac process is forked and no class file
+ * is written to the submission folder.
+ * <p>
+ * A SubmissionCompiler is safe to share between submissions.  With a
+ * ClassStore, sources that were compiled before with the same options
+ * are not compiled again.
+ */
+public class SubmissionCompiler {
+    private final JavaCompiler javac;
+    private final List<String> options;
+    private final ClassStore store;
+
+    /**
+     * Construct a compiler that compiles against the classpath of the
+     * running JVM, so that checkers can refer to the Kelas classes.
+     */
+    public SubmissionCompiler() {
+        this(List.of("-proc:none", "-classpath", System.getProperty("java.class.path")));
+    }
+
+    /**
+     * Construct a compiler with the given javac options.
+     *
+     * @param options The options passed to javac.
+     */
+    public SubmissionCompiler(List<String> options) {
+        this(options, null);
+    }
+
+    /**
+     * Construct a compiler with the given javac options that reuses the
+     * results stored in a ClassStore.
+     *
+     * @param options The options passed to javac.
+     * @param store The store of compiled sources; may be null.
+     */
+    public SubmissionCompiler(List<String> options, ClassStore store) {
+        this.store = store;
+        this.javac = ToolProvider.getSystemJavaCompiler();
+        if (this.javac == null) {
+            throw new IllegalStateException("No system Java compiler; run the grader on a JDK");
+        }
+        this.options = List.copyOf(options);
+    }
+
+    /**
+     * Compile the given source files.
+     *
+     * @param sources The .java files to compile together.
+     * @return The result of the compilation.
+     */
+    public Result compile(Collection<Path> sources) {
+        if (store == null) {
+            return javac(sources);
+        }
+        String key;
+        try {
+            key = store.key(options, sources);
+        } catch (IOException e) {
+            return new Result(false, Map.of(), e.toString());
+        }
+        Result result = store.get(key);
+        if (result == null) {
+            result = javac(sources);
+            try {
+                store.put(key, result);
+            } catch (IOException e) {
+                // The store is only an optimisation; the result is still good.
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get a compiler like this one that consults a store before
+     * compiling.
+     *
+     * @param store The store.
+     * @return The new compiler.
+     */
+    public SubmissionCompiler withStore(ClassStore store) {
+        return new SubmissionCompiler(options, store);
+    }
+
+    private Result javac(Collection<Path> sources) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, byte[]> classes = new HashMap<>();
+
+        try (StandardJavaFileManager standard = javac.getStandardFileManager(diagnostics, Locale.ROOT, null);
+                MemoryFileManager files = new MemoryFileManager(standard, classes)) {
+            Iterable<? extends JavaFileObject> units = standard.getJavaFileObjectsFromPaths(sources);
+            boolean ok = javac.getTask(null, files, diagnostics, options, null, units).call();
+            return new Result(ok, ok ? classes : Map.of(), format(diagnostics));
+        } catch (IOException e) {
+            return new Result(false, Map.of(), e.toString());
+        }
+    }
+
+    private static String format(DiagnosticCollector<JavaFileObject> diagnostics) {
+        StringBuilder sb = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() != Diagnostic.Kind.ERROR) {
+                continue;
+            }
+            if (d.getSource() != null) {
+                sb.append(Path.of(d.getSource().toUri()).getFileName())
+                    .append(':').append(d.getLineNumber()).append(": ");
+            }
+            sb.append(d.getMessage(Locale.ROOT)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The outcome of compiling one submission.
+     */
+    public static class Result {
+        private final boolean success;
+        private final Map<String, byte[]> classes;
+        private final String errors;
+
+        Result(boolean success, Map<String, byte[]> classes, String errors) {
+            this.success = success;
+            this.classes = classes;
+            this.errors = errors;
+        }
+
+        public boolean succeeded() {
+            return success;
+        }
+
+        /**
+         * Get the compiled bytecode, keyed by binary class name.
+         * @return Map of class name to class file bytes
+         */
+        public Map<String, byte[]> getClasses() {
+            return classes;
+        }
+
+        public String getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * File manager that keeps every generated class file in memory.
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                JavaFileObject.Kind kind, FileObject sibling) {
+            URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+            return new SimpleJavaFileObject(uri, kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
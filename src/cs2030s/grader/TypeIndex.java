@@ -0,0 +1,137 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Index of the type hierarchy of one submission.
+ * <p>
+ * The classes of the submission are scanned once; afterwards the direct
+ * subclasses and implementors of a type, and all its descendants, are
+ * a hash lookup instead of a rescan of the classpath.
+ */
+final class TypeIndex {
+    // The index of the application loader used by check.sh, which is
+    // never unloaded.
+    private static TypeIndex system;
+    // Indexes of any other loader.  An index refers to the classes of
+    // its loader, so it is held weakly; a strong value would keep the
+    // weak key reachable for ever.
+    private static final Map<ClassLoader, WeakReference<TypeIndex>> OTHERS = new WeakHashMap<>();
+
+    private final List<Class<?>> classes;
+    private final Map<Class<?>, List<Class<?>>> subclasses = new HashMap<>();
+    private final Map<Class<?>, List<Class<?>>> implementors = new HashMap<>();
+    private final Map<Class<?>, Set<Class<?>>> descendants = new HashMap<>();
+    private OverrideGraph overrideGraph;
+
+    TypeIndex(List<Class<?>> classes) {
+        this.classes = Collections.unmodifiableList(new ArrayList<>(classes));
+        for (Class<?> c : classes) {
+            if (c.getSuperclass() != null) {
+                subclasses.computeIfAbsent(c.getSuperclass(), k -> new ArrayList<>()).add(c);
+            }
+            for (Class<?> i : c.getInterfaces()) {
+                implementors.computeIfAbsent(i, k -> new ArrayList<>()).add(c);
+            }
+            for (Class<?> a : ancestorsOf(c)) {
+                descendants.computeIfAbsent(a, k -> new LinkedHashSet<>()).add(c);
+            }
+        }
+    }
+
+    /**
+     * Get the index of the submission the current thread is checking.
+     */
+    static TypeIndex current() throws ClassNotFoundException, IOException {
+        return of(KelasUtils.getClassLoader());
+    }
+
+    /**
+     * Get the index of the classes of a loader, building it on first use.
+     */
+    static TypeIndex of(ClassLoader loader) throws ClassNotFoundException, IOException {
+        if (loader instanceof SubmissionClassLoader) {
+            return ((SubmissionClassLoader) loader).getTypeIndex();
+        }
+        synchronized (OTHERS) {
+            if (loader == ClassLoader.getSystemClassLoader()) {
+                if (system == null) {
+                    system = new TypeIndex(KelasUtils.getClasses(loader));
+                }
+                return system;
+            }
+            WeakReference<TypeIndex> ref = OTHERS.get(loader);
+            TypeIndex index = ref == null ? null : ref.get();
+            if (index == null) {
+                index = new TypeIndex(KelasUtils.getClasses(loader));
+                OTHERS.put(loader, new WeakReference<>(index));
+            }
+            return index;
+        }
+    }
+
+    /**
+     * All proper supertypes of c, superclasses and interfaces, except Object.
+     */
+    static Set<Class<?>> ancestorsOf(Class<?> c) {
+        Set<Class<?>> seen = new HashSet<>();
+        Deque<Class<?>> todo = new ArrayDeque<>();
+        todo.push(c);
+        while (!todo.isEmpty()) {
+            Class<?> t = todo.pop();
+            Class<?> s = t.getSuperclass();
+            if (s != null && s != Object.class && seen.add(s)) {
+                todo.push(s);
+            }
+            for (Class<?> i : t.getInterfaces()) {
+                if (seen.add(i)) {
+                    todo.push(i);
+                }
+            }
+        }
+        return seen;
+    }
+
+    List<Class<?>> getClasses() {
+        return classes;
+    }
+
+    List<Class<?>> getSubclasses(Class<?> c) {
+        return subclasses.getOrDefault(c, List.of());
+    }
+
+    List<Class<?>> getImplementors(Class<?> c) {
+        return implementors.getOrDefault(c, List.of());
+    }
+
+    /**
+     * All classes of the submission that extend or implement c, directly
+     * or indirectly.
+     */
+    Set<Class<?>> getDescendants(Class<?> c) {
+        return descendants.getOrDefault(c, Set.of());
+    }
+
+    /**
+     * Get the override graph of the same classes, building it on first
+     * use.
+     */
+    synchronized OverrideGraph getOverrideGraph() {
+        if (overrideGraph == null) {
+            overrideGraph = new OverrideGraph(this);
+        }
+        return overrideGraph;
+    }
+}
@@ -0,0 +1,490 @@
+package cs2030s.grader;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pattern over generic types, such as {@code Map<String, List<Case>>}
+ * or {@code Collection<? extends Case>}, parsed once and matched against
+ * the generic types of fields and methods.
+ * <p>
+ * Syntax:
+ * <ul>
+ * <li>{@code Name} matches the class Name however it is parameterized,
+ * raw or not.  Names with a dot are compared with the qualified class
+ * name, others with the simple name, so {@code Case}, {@code int} and
+ * {@code java.util.List} all work.
+ * <li>{@code Name<P, ...>} matches Name parameterized with type
+ * arguments matching each P; the number of arguments must agree.
+ * <li>{@code Name<>} matches Name used as a raw type only.
+ * <li>{@code P[]} matches arrays of P.
+ * <li>{@code *} matches any type, including wildcards.
+ * <li>{@code ?}, {@code ? extends P} and {@code ? super P} match the
+ * corresponding wildcards.
+ * </ul>
+ * matches(Type) compares the type with the pattern as written:
+ * {@code List<Case>} does not match {@code ArrayList<Case>}.
+ * isAssignableFrom(Type) instead asks whether a value of the type can be
+ * used where the pattern is expected: the type's supertypes are searched
+ * for the pattern's class, with type arguments substituted, and
+ * wildcards in the pattern contain the types they bound.  So
+ * {@code Collection<? extends Case>} is assignable from
+ * {@code ArrayList<ImportedCase>}.  For {@code ? super P}, P is loaded
+ * like Kelas loads classes (simple names are also tried in java.lang and
+ * java.util) and compared by name if it cannot be.
+ * <p>
+ * Patterns are values (equal when their normalized text is equal) and
+ * hold no reference to any class, so a pattern shared by a batch never
+ * keeps a submission loaded.
+ */
+public final class TypePattern {
+    private static final TypePattern ANY = new TypePattern(Kind.ANY, null, null, 0, false, null);
+
+    private enum Kind { ANY, CLASS, WILDCARD, EXTENDS, SUPER }
+
+    private final Kind kind;
+    private final String name;
+    private final List<TypePattern> arguments;
+    private final int dimensions;
+    private final boolean raw;
+    private final TypePattern bound;
+
+    private TypePattern(Kind kind, String name, List<TypePattern> arguments, int dimensions, boolean raw,
+            TypePattern bound) {
+        this.kind = kind;
+        this.name = name;
+        this.arguments = arguments;
+        this.dimensions = dimensions;
+        this.raw = raw;
+        this.bound = bound;
+    }
+
+    /**
+     * Parse a pattern.
+     *
+     * @param text The pattern.
+     * @return The parsed pattern.
+     * @throws IllegalArgumentException Thrown if the pattern is malformed.
+     */
+    public static TypePattern parse(String text) {
+        Parser p = new Parser(text);
+        TypePattern pattern = p.pattern();
+        p.skipSpaces();
+        if (p.pos != text.length()) {
+            throw new IllegalArgumentException("unexpected '" + text.charAt(p.pos) + "' in type " + text);
+        }
+        return pattern;
+    }
+
+    /**
+     * Check if the pattern has type arguments, wildcards or array
+     * dimensions, i.e. needs the generic type rather than the class.
+     * @return true if generic
+     */
+    public boolean isGeneric() {
+        return kind != Kind.CLASS || !arguments.isEmpty() || raw || dimensions > 0;
+    }
+
+    /**
+     * Check if a type is exactly as the pattern describes.
+     *
+     * @param type A Class or a generic type.
+     * @return true if it matches
+     */
+    public boolean matches(Type type) {
+        switch (kind) {
+        case ANY:
+            return true;
+        case WILDCARD:
+            return type instanceof WildcardType && isUnbounded((WildcardType) type);
+        case EXTENDS:
+            return type instanceof WildcardType && ((WildcardType) type).getLowerBounds().length == 0
+                && !isUnbounded((WildcardType) type)
+                && bound.matches(((WildcardType) type).getUpperBounds()[0]);
+        case SUPER:
+            return type instanceof WildcardType && ((WildcardType) type).getLowerBounds().length > 0
+                && bound.matches(((WildcardType) type).getLowerBounds()[0]);
+        default:
+            return matchesClass(type);
+        }
+    }
+
+    private boolean matchesClass(Type type) {
+        for (int d = 0; d < dimensions; d++) {
+            if (type instanceof GenericArrayType) {
+                type = ((GenericArrayType) type).getGenericComponentType();
+            } else if (type instanceof Class && ((Class<?>) type).isArray()) {
+                type = ((Class<?>) type).getComponentType();
+            } else {
+                return false;
+            }
+        }
+        if (type instanceof Class) {
+            Class<?> c = (Class<?>) type;
+            return !c.isArray() && nameMatches(c) && arguments.isEmpty();
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType p = (ParameterizedType) type;
+            if (raw || !nameMatches((Class<?>) p.getRawType())) {
+                return false;
+            }
+            return arguments.isEmpty() || argumentsMatch(p.getActualTypeArguments(), false);
+        } else if (type instanceof TypeVariable) {
+            return arguments.isEmpty() && !raw && ((TypeVariable<?>) type).getName().equals(name);
+        }
+        return false;
+    }
+
+    private boolean argumentsMatch(Type[] actual, boolean assignable) {
+        if (actual.length != arguments.size()) {
+            return false;
+        }
+        for (int i = 0; i < actual.length; i++) {
+            TypePattern p = arguments.get(i);
+            if (!(assignable ? p.contains(actual[i]) : p.matches(actual[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a value of the given type can be used where the pattern
+     * is expected.
+     *
+     * @param type A Class or a generic type.
+     * @return true if assignable
+     */
+    public boolean isAssignableFrom(Type type) {
+        if (kind == Kind.ANY) {
+            return true;
+        }
+        if (kind != Kind.CLASS) {
+            return false;
+        }
+        if (dimensions > 0) {
+            Type component = componentOf(type);
+            return component != null
+                && new TypePattern(kind, name, arguments, dimensions - 1, raw, null).isAssignableFrom(component);
+        }
+        if (type instanceof WildcardType) {
+            WildcardType w = (WildcardType) type;
+            return w.getLowerBounds().length == 0 && isAssignableFrom(w.getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable) {
+            for (Type b : ((TypeVariable<?>) type).getBounds()) {
+                if (isAssignableFrom(b)) {
+                    return true;
+                }
+            }
+            return matchesClass(type);
+        }
+        Type supertype = findSupertype(type, new HashMap<>());
+        if (supertype == null) {
+            return false;
+        } else if (raw || arguments.isEmpty()) {
+            return !raw || supertype instanceof Class;
+        } else if (!(supertype instanceof ParameterizedType)) {
+            return false;
+        }
+        return argumentsMatch(((ParameterizedType) supertype).getActualTypeArguments(), true);
+    }
+
+    /**
+     * Check if this pattern, as a type argument, contains the given type
+     * argument: wildcards contain the types within their bounds, other
+     * patterns only the types they match.
+     */
+    private boolean contains(Type type) {
+        switch (kind) {
+        case ANY:
+        case WILDCARD:
+            return true;
+        case EXTENDS:
+            return bound.isAssignableFrom(type);
+        case SUPER:
+            if (type instanceof WildcardType) {
+                Type[] lower = ((WildcardType) type).getLowerBounds();
+                return lower.length > 0 && bound.matches(lower[0]);
+            }
+            if (bound.matches(type)) {
+                return true;
+            }
+            Class<?> lower = bound.kind == Kind.CLASS && bound.dimensions == 0 ? bound.resolve() : null;
+            Class<?> c = type instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) type).getRawType()
+                : type instanceof Class ? (Class<?>) type : null;
+            return c == Object.class || (c != null && lower != null && c.isAssignableFrom(lower));
+        default:
+            return matches(type);
+        }
+    }
+
+    /**
+     * Find the supertype of type (or type itself) whose class the
+     * pattern names, with the type variables of type substituted.
+     *
+     * @return The supertype, or null if there is none.
+     */
+    private Type findSupertype(Type type, Map<TypeVariable<?>, Type> env) {
+        Class<?> c;
+        Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+        if (type instanceof ParameterizedType) {
+            ParameterizedType p = (ParameterizedType) type;
+            c = (Class<?>) p.getRawType();
+            TypeVariable<?>[] vars = c.getTypeParameters();
+            Type[] args = p.getActualTypeArguments();
+            for (int i = 0; i < vars.length && i < args.length; i++) {
+                bindings.put(vars[i], substitute(args[i], env));
+            }
+            type = bindings.isEmpty() ? c : new Parameterized(c, vars, bindings);
+        } else if (type instanceof Class) {
+            c = (Class<?>) type;
+        } else {
+            return null;
+        }
+        if (nameMatches(c)) {
+            return type;
+        }
+        // A raw type has raw supertypes.
+        boolean erased = c.getTypeParameters().length > 0 && bindings.isEmpty();
+        List<Type> supertypes = new ArrayList<>();
+        if (c.getSuperclass() != null) {
+            supertypes.add(erased ? c.getSuperclass() : c.getGenericSuperclass());
+        }
+        Collections.addAll(supertypes, erased ? c.getInterfaces() : c.getGenericInterfaces());
+        for (Type s : supertypes) {
+            Type found = findSupertype(s, bindings);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static Type substitute(Type type, Map<TypeVariable<?>, Type> env) {
+        if (type instanceof TypeVariable && env.containsKey(type)) {
+            return env.get(type);
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType p = (ParameterizedType) type;
+            Class<?> c = (Class<?>) p.getRawType();
+            TypeVariable<?>[] vars = c.getTypeParameters();
+            Type[] args = p.getActualTypeArguments();
+            Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+            for (int i = 0; i < vars.length && i < args.length; i++) {
+                bindings.put(vars[i], substitute(args[i], env));
+            }
+            return new Parameterized(c, vars, bindings);
+        }
+        return type;
+    }
+
+    /**
+     * Load the class named by this pattern, or return null.
+     */
+    private Class<?> resolve() {
+        List<String> candidates = name.indexOf('.') >= 0
+            ? List.of(name)
+            : List.of(name, "java.lang." + name, "java.util." + name);
+        for (String candidate : candidates) {
+            try {
+                return Class.forName(candidate, false, KelasUtils.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                // try the next package
+            }
+        }
+        return null;
+    }
+
+    private static Type componentOf(Type type) {
+        if (type instanceof GenericArrayType) {
+            return ((GenericArrayType) type).getGenericComponentType();
+        } else if (type instanceof Class && ((Class<?>) type).isArray()) {
+            return ((Class<?>) type).getComponentType();
+        }
+        return null;
+    }
+
+    private static boolean isUnbounded(WildcardType w) {
+        return w.getLowerBounds().length == 0
+            && (w.getUpperBounds().length == 0 || w.getUpperBounds()[0] == Object.class);
+    }
+
+    private boolean nameMatches(Class<?> c) {
+        return name.indexOf('.') >= 0 ? c.getName().equals(name) : c.getSimpleName().equals(name);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TypePattern && toString().equals(o.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+        case ANY:
+            return "*";
+        case WILDCARD:
+            return "?";
+        case EXTENDS:
+            return "? extends " + bound;
+        case SUPER:
+            return "? super " + bound;
+        default:
+            StringBuilder sb = new StringBuilder(name);
+            if (raw) {
+                sb.append("<>");
+            } else if (!arguments.isEmpty()) {
+                sb.append('<');
+                for (int i = 0; i < arguments.size(); i++) {
+                    sb.append(i > 0 ? ", " : "").append(arguments.get(i));
+                }
+                sb.append('>');
+            }
+            for (int d = 0; d < dimensions; d++) {
+                sb.append("[]");
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A parameterized supertype with the type arguments of a subtype
+     * substituted in, e.g. Collection&lt;Case&gt; for ArrayList&lt;Case&gt;.
+     */
+    private static final class Parameterized implements ParameterizedType {
+        private final Class<?> raw;
+        private final Type[] arguments;
+
+        Parameterized(Class<?> raw, TypeVariable<?>[] vars, Map<TypeVariable<?>, Type> bindings) {
+            this.raw = raw;
+            this.arguments = new Type[vars.length];
+            for (int i = 0; i < vars.length; i++) {
+                arguments[i] = bindings.getOrDefault(vars[i], vars[i]);
+            }
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return raw;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return raw.getDeclaringClass();
+        }
+    }
+
+    /**
+     * Recursive descent parser for the pattern syntax.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        TypePattern pattern() {
+            skipSpaces();
+            if (accept("*")) {
+                return ANY;
+            }
+            if (accept("?")) {
+                skipSpaces();
+                if (acceptWord("extends")) {
+                    return new TypePattern(Kind.EXTENDS, null, null, 0, false, pattern());
+                } else if (acceptWord("super")) {
+                    return new TypePattern(Kind.SUPER, null, null, 0, false, pattern());
+                }
+                return new TypePattern(Kind.WILDCARD, null, null, 0, false, null);
+            }
+            String name = name();
+            List<TypePattern> arguments = List.of();
+            boolean raw = false;
+            skipSpaces();
+            if (accept("<")) {
+                skipSpaces();
+                if (accept(">")) {
+                    raw = true;
+                } else {
+                    List<TypePattern> list = new ArrayList<>();
+                    do {
+                        list.add(pattern());
+                        skipSpaces();
+                    } while (accept(","));
+                    expect(">");
+                    arguments = Collections.unmodifiableList(list);
+                }
+            }
+            int dimensions = 0;
+            skipSpaces();
+            while (accept("[")) {
+                skipSpaces();
+                expect("]");
+                dimensions++;
+                skipSpaces();
+            }
+            return new TypePattern(Kind.CLASS, name, arguments, dimensions, raw, null);
+        }
+
+        private String name() {
+            int start = pos;
+            while (pos < text.length()
+                    && (Character.isJavaIdentifierPart(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("expected a type name at " + start + " in " + text);
+            }
+            return text.substring(start, pos);
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean accept(String s) {
+            if (text.startsWith(s, pos)) {
+                pos += s.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptWord(String word) {
+            int end = pos + word.length();
+            if (text.startsWith(word, pos)
+                    && (end == text.length() || !Character.isJavaIdentifierPart(text.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String s) {
+            if (!accept(s)) {
+                throw new IllegalArgumentException("expected '" + s + "' at " + pos + " in " + text);
+            }
+        }
+    }
+}
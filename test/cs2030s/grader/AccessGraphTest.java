@@ -0,0 +1,63 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests of the field accesses and calls of a submission.
+ */
+public class AccessGraphTest {
+    private static final SubmissionClassLoader POINTS = TestSubmission.load(
+            "public class Point {\n"
+            + "    static final int ORIGIN = 0;\n"
+            + "    int x;\n"
+            + "    private int y;\n"
+            + "    int y() { return y; }\n"
+            + "}",
+            "public class Point3 extends Point {\n"
+            + "    private int z;\n"
+            + "    int sum() { return x + y() + z; }\n"
+            + "}",
+            "public class Line {\n"
+            + "    private Point a = new Point();\n"
+            + "    int dx(Point b) { return b.x - a.x + Point.ORIGIN; }\n"
+            + "    int dy(Point b) { return b.y() - a.y(); }\n"
+            + "}");
+
+    private static AccessGraph graph() throws Exception {
+        return AccessGraph.of(POINTS);
+    }
+
+    private static List<String> foreign(String className) throws Exception {
+        List<String> list = new ArrayList<>();
+        for (AccessGraph.Access a : graph().getFieldAccessesBy(className)) {
+            if (a.isForeign()) {
+                list.add(a.getOwner() + "." + a.getName());
+            }
+        }
+        return list;
+    }
+
+    public static void testForeignAccesses() throws Exception {
+        assertEquals(List.of("Point.x", "Point.x"), foreign("Line"));
+        assertEquals(List.of(), foreign("Point3"));
+        assertTrue(graph().getFieldAccessesBy("Line").size() > 2, "Line also reads its own field");
+    }
+
+    public static void testEncapsulated() throws Exception {
+        assertTrue(!graph().isEncapsulated("Point"), "Line reads Point.x");
+        assertTrue(graph().isEncapsulated("Point3"), "only Point3 reads z");
+        assertTrue(graph().isEncapsulated("Line"), "only Line reads a");
+    }
+
+    public static void testCalls() throws Exception {
+        List<String> calls = new ArrayList<>();
+        for (AccessGraph.Access a : graph().getCallsBy("Line")) {
+            calls.add(a.getOwner() + "." + a.getName());
+        }
+        assertEquals(List.of("java.lang.Object.<init>", "Point.<init>", "Point.y", "Point.y"), calls);
+    }
+}
@@ -0,0 +1,113 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests of the instruction decoder.
+ */
+public class BytecodeTest {
+    private static final ClassFile SWITCHES = read(
+            "public class Switches {\n"
+            + "    int table(int x) {\n"
+            + "        switch (x) { case 1: return 10; case 2: return 20; case 3: return 30; default: return 0; }\n"
+            + "    }\n"
+            + "    int lookup(int x) {\n"
+            + "        switch (x) { case 1: return 10; case 1000: return 20; default: return 0; }\n"
+            + "    }\n"
+            + "    int count(int n) {\n"
+            + "        int s = 0;\n"
+            + "        for (int i = 0; i < n; i += 5) { s++; }\n"
+            + "        return s;\n"
+            + "    }\n"
+            + "    String name() { return \"switches\" + count(3); }\n"
+            + "}");
+
+    private static ClassFile read(String source) {
+        try {
+            return ClassFile.read(TestSubmission.compile(source).get("Switches"));
+        } catch (java.io.IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] code(String method) {
+        for (ClassFile.Member m : SWITCHES.getMethods()) {
+            if (m.getName().equals(method)) {
+                return m.getCode();
+            }
+        }
+        throw new AssertionError("no method " + method);
+    }
+
+    private static Set<Integer> offsets(byte[] code) {
+        Set<Integer> offsets = new HashSet<>();
+        Bytecode b = new Bytecode(code);
+        while (b.next()) {
+            offsets.add(b.offset());
+        }
+        return offsets;
+    }
+
+    /**
+     * Get the keys of the first switch, checking that the default and
+     * every case target an instruction.
+     */
+    private static List<Integer> switchKeys(String method, int opcode) {
+        byte[] code = code(method);
+        Set<Integer> offsets = offsets(code);
+        Bytecode b = new Bytecode(code);
+        while (b.next()) {
+            if (b.opcode() != opcode) {
+                continue;
+            }
+            assertTrue(Bytecode.isBranch(opcode), "a switch is a branch");
+            assertTrue(offsets.contains(b.operand()), "default targets an instruction");
+            List<Integer> keys = new ArrayList<>();
+            for (int k = 0; k < b.value(); k++) {
+                keys.add(b.switchKey(k));
+                assertTrue(offsets.contains(b.switchTarget(k)), "case targets an instruction");
+            }
+            return keys;
+        }
+        throw new AssertionError("no switch " + opcode + " in " + method);
+    }
+
+    public static void testTableSwitch() {
+        assertEquals(List.of(1, 2, 3), switchKeys("table", Bytecode.TABLESWITCH));
+    }
+
+    public static void testLookupSwitch() {
+        assertEquals(List.of(1, 1000), switchKeys("lookup", Bytecode.LOOKUPSWITCH));
+    }
+
+    public static void testIinc() {
+        List<Integer> increments = new ArrayList<>();
+        Bytecode b = new Bytecode(code("count"));
+        while (b.next()) {
+            if (b.opcode() == Bytecode.IINC) {
+                increments.add(b.value());
+            }
+        }
+        assertEquals(List.of(1, 5), increments);
+    }
+
+    public static void testConstantRefs() {
+        List<String> refs = new ArrayList<>();
+        ClassFile.ConstantPool pool = SWITCHES.getConstantPool();
+        Bytecode b = new Bytecode(code("name"));
+        while (b.next()) {
+            if (Bytecode.isInvoke(b.opcode()) || b.opcode() == Bytecode.INVOKEDYNAMIC) {
+                assertTrue(Bytecode.isConstantRef(b.opcode()), "an invoke refers to the pool");
+                refs.add(pool.ref(b.operand()).toString());
+            }
+        }
+        assertEquals(List.of("Switches.count:(I)I", "makeConcatWithConstants:(I)Ljava/lang/String;"),
+                refs);
+    }
+}
@@ -0,0 +1,112 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tests of the class file reader.
+ */
+public class ClassFileTest {
+
+    private static ClassFile.Member member(List<ClassFile.Member> members, String name) {
+        for (ClassFile.Member m : members) {
+            if (m.getName().equals(name)) {
+                return m;
+            }
+        }
+        throw new AssertionError("no member " + name);
+    }
+
+    public static void testReadsDeclarations() throws Exception {
+        ClassFile cf = ClassFile.read(TestSubmission.compile(
+                "import java.util.List;\n"
+                + "public abstract class Shape implements Comparable<Shape> {\n"
+                + "    static final int SIDES = 4;\n"
+                + "    static final String NAME = \"shape\";\n"
+                + "    private List<String> tags;\n"
+                + "    abstract double area();\n"
+                + "    public int compareTo(Shape o) { return 0; }\n"
+                + "}").get("Shape"));
+
+        assertEquals("Shape", cf.getName());
+        assertEquals("java.lang.Object", cf.getSuperName());
+        assertEquals(List.of("java.lang.Comparable"), cf.getInterfaces());
+        assertTrue(cf.isAbstract() && !cf.isInterface(), "Shape is an abstract class");
+        assertEquals("Ljava/lang/Object;Ljava/lang/Comparable<LShape;>;", cf.getSignature());
+
+        assertEquals(4, member(cf.getFields(), "SIDES").getConstantValue());
+        assertEquals("shape", member(cf.getFields(), "NAME").getConstantValue());
+        ClassFile.Member tags = member(cf.getFields(), "tags");
+        assertEquals("java.util.List", tags.getTypeName());
+        assertEquals("Ljava/util/List<Ljava/lang/String;>;", tags.getSignature());
+
+        assertTrue(member(cf.getMethods(), "area").getCode() == null, "area is abstract");
+        ClassFile.Member compareTo = member(cf.getMethods(), "compareTo");
+        assertEquals(List.of("Shape"), compareTo.getParameterTypeNames());
+        assertTrue(compareTo.getCode() != null, "compareTo has code");
+    }
+
+    public static void testTypeName() {
+        assertEquals("int", ClassFile.typeName("I"));
+        assertEquals("java.lang.String", ClassFile.typeName("Ljava/lang/String;"));
+        assertEquals("double[][]", ClassFile.typeName("[[D"));
+        assertEquals("java.util.List[]", ClassFile.typeName("[Ljava/util/List;"));
+    }
+
+    /**
+     * javac emits no ldc of a MethodHandle, MethodType or Dynamic
+     * constant, so the class file is written by hand.
+     */
+    public static void testDescribesLoadableConstants() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(61);
+        out.writeShort(16);
+        utf8(out, "T");                                  // 1
+        out.writeByte(7); out.writeShort(1);             // 2 Class T
+        utf8(out, "java/lang/Object");                   // 3
+        out.writeByte(7); out.writeShort(3);             // 4 Class Object
+        utf8(out, "m");                                  // 5
+        utf8(out, "()V");                                // 6
+        out.writeByte(12); out.writeShort(5); out.writeShort(6); // 7 m:()V
+        out.writeByte(10); out.writeShort(2); out.writeShort(7); // 8 T.m:()V
+        out.writeByte(15); out.writeByte(6); out.writeShort(8);  // 9 invokestatic T.m
+        out.writeByte(16); out.writeShort(6);            // 10 MethodType ()V
+        utf8(out, "x");                                  // 11
+        utf8(out, "I");                                  // 12
+        out.writeByte(12); out.writeShort(11); out.writeShort(12); // 13 x:I
+        out.writeByte(17); out.writeShort(0); out.writeShort(13);  // 14 Dynamic
+        utf8(out, "BootstrapMethods");                   // 15
+        out.writeShort(0x21);
+        out.writeShort(2);
+        out.writeShort(4);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(0); // methods
+        out.writeShort(1);
+        out.writeShort(15);
+        out.writeInt(8);
+        out.writeShort(1);
+        out.writeShort(9);
+        out.writeShort(1);
+        out.writeShort(10);
+
+        ClassFile.ConstantPool pool = ClassFile.read(bytes.toByteArray()).getConstantPool();
+        assertEquals("T", pool.describe(2));
+        assertEquals("6 T.m:()V", pool.describe(9));
+        assertEquals("()V", pool.describe(10));
+        assertEquals("x:I 6 T.m:()V;()V;", pool.describe(14));
+    }
+
+    private static void utf8(DataOutputStream out, String s) throws IOException {
+        out.writeByte(1);
+        out.writeUTF(s);
+    }
+}
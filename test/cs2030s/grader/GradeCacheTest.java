@@ -0,0 +1,39 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests of the persistent grade cache.
+ */
+public class GradeCacheTest {
+
+    public static void testHitsAreCountedByRun() throws Exception {
+        Path dir = Files.createTempDirectory("kelas-cache");
+        try {
+            Path spec = Files.writeString(dir.resolve("rules.kelas"), "a: A exists\n");
+            List<Path> sources = TestSubmission.write(dir.resolve("s"), "public class A { }");
+            GradeCache.Entry entry = new GradeCache.Entry(true, "", List.of(
+                    new CheckResult(null, null, "a", true, "Check passed", 42)), null);
+
+            GradeCache first = new GradeCache(dir.resolve("cache"), spec);
+            String key = first.key(sources);
+            assertEquals(null, first.get(key));
+            first.put(key, entry);
+            assertEquals(42L, first.get(key).results.get(0).getElapsedNanos());
+            assertEquals(0, first.unchangedCount());
+            assertEquals(1, first.duplicateCount());
+
+            GradeCache second = new GradeCache(dir.resolve("cache"), spec);
+            assertEquals(key, second.key(sources));
+            assertEquals("a", second.get(key).results.get(0).getRule());
+            assertEquals(1, second.unchangedCount());
+            assertEquals(0, second.duplicateCount());
+        } finally {
+            TestSubmission.delete(dir);
+        }
+    }
+}
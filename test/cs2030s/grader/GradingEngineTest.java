@@ -0,0 +1,41 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests of in-process grading.
+ */
+public class GradingEngineTest {
+
+    private static String counter(String body) {
+        return "public class Counter {\n"
+            + "    private int count;\n"
+            + "    int next() { " + body + " return ++count; }\n"
+            + "}";
+    }
+
+    /**
+     * A submission that can exit is refused even when a clean one of
+     * the same shape was graded before it.
+     */
+    public static void testExitIsRefusedDespiteSharedShape() throws Exception {
+        Path lab = Files.createTempDirectory("kelas-lab");
+        try {
+            TestSubmission.write(lab.resolve("a"), counter(""));
+            TestSubmission.write(lab.resolve("b"), counter("if (count < 0) { System.exit(1); }"));
+            RuleSet rules = RuleSet.parse("test", List.of("private: Counter fields all private"));
+            GradingEngine engine = new GradingEngine("lab", rules, null).withShapes(new DesignShapes());
+
+            GradingResult a = engine.grade(lab.resolve("a"));
+            GradingResult b = engine.grade(lab.resolve("b"));
+            assertTrue(a.getOutput().isEmpty(), "a passes: " + a.getOutput());
+            assertTrue(b.getOutput().contains("Counter calls System.exit"), "b is refused: " + b.getOutput());
+        } finally {
+            TestSubmission.delete(lab);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+
+/**
+ * Tests of override resolution.
+ */
+public class MethodIndexTest {
+    private static final SubmissionClassLoader LEVELS = TestSubmission.load(
+            "public class A implements Comparable<A> {\n"
+            + "    void foo() { }\n"
+            + "    void bar() { }\n"
+            + "    public int compareTo(A a) { return 0; }\n"
+            + "}",
+            "public class B extends A {\n"
+            + "    void foo() { }\n"
+            + "}",
+            "public class C extends B {\n"
+            + "    void foo() { }\n"
+            + "    void bar() { }\n"
+            + "    public int compareTo(A a) { return 1; }\n"
+            + "}");
+
+    private static int overriding(String className, String method, String type) throws Exception {
+        Kelas k = new Kelas(LEVELS.loadClass(className));
+        return k.getMethods(method).overrideMethodOf(Class.forName(type, false, LEVELS)).count();
+    }
+
+    public static void testOverriddenBy() throws Exception {
+        assertEquals(LEVELS.loadClass("B").getDeclaredMethod("foo"),
+                MethodIndex.overriddenBy(LEVELS.loadClass("C").getDeclaredMethod("foo")));
+        assertEquals(LEVELS.loadClass("A").getDeclaredMethod("bar"),
+                MethodIndex.overriddenBy(LEVELS.loadClass("C").getDeclaredMethod("bar")));
+        assertEquals(null, MethodIndex.overriddenBy(LEVELS.loadClass("A").getDeclaredMethod("foo")));
+    }
+
+    public static void testOverrideMethodOfThreeLevels() throws Exception {
+        // C.foo overrides B.foo, which overrides A.foo.
+        assertEquals(1, overriding("C", "foo", "B"));
+        assertEquals(1, overriding("C", "foo", "A"));
+        // C.bar overrides A.bar, which B inherits.
+        assertEquals(1, overriding("C", "bar", "B"));
+        assertEquals(1, overriding("C", "bar", "A"));
+        assertEquals(0, overriding("B", "foo", "java.lang.Object"));
+        // The bridge and the method itself, through A.compareTo.
+        assertEquals(2, overriding("C", "compareTo", "java.lang.Comparable"));
+    }
+}
@@ -0,0 +1,57 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.lang.reflect.Method;
+
+/**
+ * Tests of the override graph of a submission.
+ */
+public class OverrideGraphTest {
+    private static final SubmissionClassLoader ANIMALS = TestSubmission.load(
+            "public abstract class Animal {\n"
+            + "    String sound() { return \"\"; }\n"
+            + "    int legs() { return 4; }\n"
+            + "    int kind(int x) { switch (x) { case 1: return 10; case 2: return 20; default: return 0; } }\n"
+            + "}",
+            "public class Dog extends Animal {\n"
+            + "    String sound() { return \"woof\"; }\n"
+            + "    int legs() { return 4; }\n"
+            + "    int kind(int x) { switch (x) { case 1: return 10; case 3: return 20; default: return 0; } }\n"
+            + "}",
+            "public class Cat extends Animal {\n"
+            + "    String sound() { return \"meow\"; }\n"
+            + "}");
+
+    private static Method method(String className, String name) throws Exception {
+        for (Method m : ANIMALS.loadClass(className).getDeclaredMethods()) {
+            if (m.getName().equals(name)) {
+                return m;
+            }
+        }
+        throw new AssertionError("no method " + className + "." + name);
+    }
+
+    private static OverrideGraph graph() throws Exception {
+        return TestSubmission.in(ANIMALS, OverrideGraph::current);
+    }
+
+    public static void testOverriders() throws Exception {
+        assertEquals(2, graph().getOverriders(method("Animal", "sound")).size());
+        assertEquals(1, graph().getOverriders(method("Animal", "legs")).size());
+        assertEquals(0, graph().getOverriders(method("Dog", "sound")).size());
+    }
+
+    public static void testOverriddenByAll() throws Exception {
+        assertTrue(graph().isOverriddenByAll(method("Animal", "sound")), "every animal makes its own sound");
+        assertTrue(!graph().isOverriddenByAll(method("Animal", "legs")), "Cat inherits legs");
+        assertTrue(!graph().isOverriddenByAll(method("Dog", "sound")), "Dog has no subclasses");
+    }
+
+    public static void testDuplicates() throws Exception {
+        assertTrue(graph().isDuplicate(method("Dog", "legs")), "Dog.legs copies Animal.legs");
+        assertTrue(!graph().isDuplicate(method("Dog", "sound")), "Dog.sound returns another constant");
+        assertTrue(!graph().isDuplicate(method("Dog", "kind")), "Dog.kind switches on other keys");
+    }
+}
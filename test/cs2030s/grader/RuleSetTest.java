@@ -0,0 +1,143 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertThrows;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the rule parser, the query planner and rule evaluation.
+ */
+public class RuleSetTest {
+    private static final SubmissionClassLoader SHOP = TestSubmission.load(
+            "public class Item {\n"
+            + "    private final int price;\n"
+            + "    Item(int price) { this.price = price; }\n"
+            + "    int price() { return price; }\n"
+            + "}",
+            "public class Food extends Item {\n"
+            + "    private static final int DAYS = 3;\n"
+            + "    Food() { super(1); }\n"
+            + "}",
+            "import java.util.ArrayList;\n"
+            + "import java.util.List;\n"
+            + "public class Shop {\n"
+            + "    List<Item> items = new ArrayList<>();\n"
+            + "    int total() { return items.get(0).price(); }\n"
+            + "}");
+
+    private static List<String> words(String condition) {
+        return Arrays.asList(RuleSet.Rule.words(condition));
+    }
+
+    public static void testComparisonsAreWords() {
+        assertEquals(List.of("Loader", "methods", "name=serve", "count", "<=", "1"),
+                words("Loader methods name=serve count <= 1"));
+        assertEquals(List.of("Loader", "methods", "count", ">=", "2"),
+                words("Loader methods count >= 2"));
+        assertEquals(List.of("Loader", "methods", "count", "==", "0"),
+                words("Loader methods count == 0"));
+    }
+
+    public static void testTypePatternIsOneWord() {
+        assertEquals(List.of("Cluster", "fields", "assignable=Collection<? extends Case>", "present"),
+                words("Cluster fields assignable=Collection<? extends Case> present"));
+        assertEquals(List.of("Cluster", "fields", "type=Map<String, List<Case>>", "count", "<=", "1"),
+                words("Cluster fields type=Map<String, List<Case>> count <= 1"));
+    }
+
+    public static void testParseSpecExamples() {
+        RuleSet rules = RuleSet.parse("test", List.of(
+                "no-overloads:  Loader methods !synthetic name=serve count <= 1",
+                "more-cases:    Cluster fields type=int count >= 2",
+                "cluster-cases: Cluster fields assignable=Collection<? extends Case> present",
+                "holder:        some class with fields type=Cluster count <= 1 and fields assignable=Map present"));
+        assertEquals(4, rules.getRules().size());
+    }
+
+    public static void testParseRejectsBadComparison() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RuleSet.parse("test", List.of("bad: Loader methods count < 1")));
+    }
+
+    public static void testParseRejectsTrailingWords() {
+        for (String condition : List.of("Case exists Cluster", "Case absent x", "Case abstract class",
+                "Case interface Shape", "Case encapsulated too")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> RuleSet.parse("test", List.of("bad: " + condition)));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> RuleSet.parse("test", List.of("bad: Case extends Base Other")));
+    }
+
+    public static void testPlannerSharesConditionsAndQueries() {
+        RuleSet rules = RuleSet.parse("test", List.of(
+                "one:   Item fields type=int count == 1",
+                "again: Item fields type=int count == 1 | Food extends Item",
+                "more:  Item fields type=int count >= 1"));
+        assertEquals("3 rules, 4 conditions (3 distinct), 4 member queries (2 distinct)", rules.describePlan());
+        assertTrue(!rules.readsBytecode(), "only declarations are read");
+        assertTrue(RuleSet.parse("test", List.of("days: Food fields value=3 present")).readsBytecode(),
+                "value= reads constants from the class file");
+    }
+
+    /**
+     * Evaluate rules against SHOP.
+     *
+     * @return Whether each rule passed, by rule id.
+     */
+    private static Map<String, Boolean> evaluate(String... lines) throws Exception {
+        RuleSet rules = RuleSet.parse("test", List.of(lines));
+        Report.bind("shop", "test", null, true);
+        List<CheckResult> results;
+        try {
+            TestSubmission.in(SHOP, rules::evaluate);
+        } finally {
+            results = Report.unbind();
+        }
+        Map<String, Boolean> passed = new LinkedHashMap<>();
+        for (CheckResult r : results) {
+            passed.put(r.getRule(), r.passed());
+        }
+        return passed;
+    }
+
+    public static void testEvaluate() throws Exception {
+        Map<String, Boolean> passed = evaluate(
+                "item-fields:  Item fields all private final",
+                "shop-fields:  Shop fields all private",
+                "food-parent:  Food extends Item",
+                "no-overloads: Item methods name=price count <= 1",
+                "shop-items:   Shop fields assignable=Collection<? extends Item> present",
+                "food-days:    Food fields private static final value=3 count == 1",
+                "either:       Shop absent | Item exists",
+                "missing:      Basket exists");
+        Map<String, Boolean> expected = new LinkedHashMap<>();
+        expected.put("item-fields", true);
+        expected.put("shop-fields", false);
+        expected.put("food-parent", true);
+        expected.put("no-overloads", true);
+        expected.put("shop-items", true);
+        expected.put("food-days", true);
+        expected.put("either", true);
+        expected.put("missing", false);
+        assertEquals(expected, passed);
+    }
+
+    public static void testEvaluateDesigns() throws Exception {
+        Map<String, Boolean> passed = evaluate(
+                "item: Item exists",
+                "design basket",
+                "basket: Basket exists",
+                "design holder",
+                "holder: some class with fields assignable=List<Item> count == 1 and methods name=total present");
+        assertEquals(true, passed.get("item"));
+        assertEquals(false, passed.get("basket/basket"));
+        assertEquals(true, passed.get("holder/holder"));
+        assertEquals(true, passed.get("design"));
+    }
+}
@@ -0,0 +1,44 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.util.List;
+
+/**
+ * Tests of the sandbox that runs the checks of a submission.
+ */
+public class SandboxTest {
+    // Read by the spinning checks so that their loop is not provably
+    // endless.
+    static volatile boolean spin = true;
+
+    public static void testRunawayChecksAreCancelled() {
+        Report.bind("spin", "test", null, true);
+        String output;
+        List<CheckResult> results;
+        try {
+            output = new Sandbox(50, 0).run("spin", SandboxTest.class.getClassLoader(), () -> {
+                System.out.println("started");
+                while (spin) {
+                    // Ignores interrupts, like a student's infinite loop.
+                }
+            });
+        } finally {
+            results = Report.unbind();
+        }
+        assertTrue(output.startsWith("started\n"), "output is kept: " + output);
+        assertTrue(output.contains("Sandbox: CPU time limit of 50 ms exceeded"), output);
+        assertEquals(1, results.size());
+        assertEquals(Sandbox.RULE, results.get(0).getRule());
+        assertTrue(!results.get(0).passed(), "the violation fails");
+    }
+
+    public static void testExitViolation() {
+        assertEquals(null, Sandbox.exitViolation(TestSubmission.compile(
+                "public class Quiet { void run() { System.out.println(); } }")));
+        assertEquals("Sandbox: Loud calls Runtime.halt, which would end the batch; checks not run",
+                Sandbox.exitViolation(TestSubmission.compile(
+                "public class Loud { void run() { Runtime.getRuntime().halt(0); } }")));
+    }
+}
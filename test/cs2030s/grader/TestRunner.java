@@ -0,0 +1,93 @@
+package cs2030s.grader;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Runs the unit tests of the grader without a test framework.
+ * <p>
+ * Usage (from the repository root):
+ * javac -d out src/cs2030s/grader/*.java test/cs2030s/grader/*.java
+ * java -cp out cs2030s.grader.TestRunner [TestClass...]
+ * <p>
+ * Every public static void method named test* of every class named
+ * *Test in this package is run, or only those of the given classes.  A
+ * test fails by throwing, usually through one of the assert methods
+ * below.  Exits with status 1 if any test failed.
+ */
+public class TestRunner {
+
+    public static void main(String[] args) throws Exception {
+        List<String> names = args.length > 0 ? Arrays.asList(args) : testClasses();
+        int run = 0;
+        int failed = 0;
+        for (String name : names) {
+            Class<?> c = Class.forName(TestRunner.class.getPackageName() + "." + name);
+            Method[] methods = c.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method m : methods) {
+                if (!m.getName().startsWith("test") || !Modifier.isStatic(m.getModifiers())
+                        || m.getParameterCount() != 0) {
+                    continue;
+                }
+                run++;
+                try {
+                    m.invoke(null);
+                } catch (InvocationTargetException e) {
+                    failed++;
+                    System.out.println("FAIL " + name + "." + m.getName() + ": " + e.getCause());
+                    continue;
+                }
+                System.out.println("ok   " + name + "." + m.getName());
+            }
+        }
+        System.out.println(run + " tests, " + failed + " failed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<String> testClasses() throws URISyntaxException {
+        File dir = new File(TestRunner.class.getResource("TestRunner.class").toURI()).getParentFile();
+        List<String> names = new ArrayList<>();
+        for (String file : dir.list()) {
+            if (file.endsWith("Test.class")) {
+                names.add(file.substring(0, file.length() - 6));
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void assertEquals(Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError("expected " + expected + " but was " + actual);
+        }
+    }
+
+    static void assertThrows(Class<? extends Throwable> type, Runnable code) {
+        try {
+            code.run();
+        } catch (Throwable t) {
+            if (type.isInstance(t)) {
+                return;
+            }
+            throw new AssertionError("expected " + type.getSimpleName() + " but got " + t, t);
+        }
+        throw new AssertionError("expected " + type.getSimpleName());
+    }
+}
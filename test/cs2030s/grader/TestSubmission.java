@@ -0,0 +1,101 @@
+package cs2030s.grader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Small submissions for tests: sources compiled in memory and loaded by
+ * a SubmissionClassLoader, as GradingEngine does for a student.
+ */
+final class TestSubmission {
+    private static final Pattern TYPE = Pattern.compile("\\b(?:class|interface|enum)\\s+(\\w+)");
+
+    private TestSubmission() {
+    }
+
+    /**
+     * Compile sources, each holding one top-level type.
+     *
+     * @return Map of binary class name to class file bytes.
+     */
+    static Map<String, byte[]> compile(String... sources) {
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("kelas-test");
+            List<Path> files = write(dir, sources);
+            SubmissionCompiler.Result result = new SubmissionCompiler().compile(files);
+            if (!result.succeeded()) {
+                throw new AssertionError(result.getErrors());
+            }
+            return result.getClasses();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Write sources to a folder, each to the file named after its type.
+     *
+     * @return The files written.
+     */
+    static List<Path> write(Path dir, String... sources) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        for (String source : sources) {
+            Matcher m = TYPE.matcher(source);
+            if (!m.find()) {
+                throw new IllegalArgumentException("no type declared in " + source);
+            }
+            files.add(Files.writeString(dir.resolve(m.group(1) + ".java"), source));
+        }
+        return files;
+    }
+
+    /**
+     * Delete a folder and everything in it.
+     */
+    static void delete(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            // A temporary directory left behind does no harm.
+        }
+    }
+
+    /**
+     * Compile sources and load them in a loader of their own.
+     */
+    static SubmissionClassLoader load(String... sources) {
+        return new SubmissionClassLoader(compile(sources), TestSubmission.class.getClassLoader());
+    }
+
+    /**
+     * Run code with a loader as the context class loader, so that Kelas
+     * and the rules resolve class names against it.
+     */
+    static <T> T in(ClassLoader loader, Callable<T> code) throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            return code.call();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Tests of the type hierarchy index.
+ */
+public class TypeIndexTest {
+    private static final String[] SHAPES = {
+        "public interface Shape { }",
+        "public abstract class Polygon implements Shape { }",
+        "public class Square extends Polygon { }",
+        "public class Circle implements Shape { }",
+    };
+
+    public static void testHierarchy() throws Exception {
+        SubmissionClassLoader loader = TestSubmission.load(SHAPES);
+        TypeIndex index = TypeIndex.of(loader);
+        Class<?> shape = loader.loadClass("Shape");
+        assertEquals(4, index.getClasses().size());
+        assertEquals(2, index.getImplementors(shape).size());
+        assertEquals(1, index.getSubclasses(loader.loadClass("Polygon")).size());
+        assertEquals(3, index.getDescendants(shape).size());
+    }
+
+    /**
+     * The index of a loader other than a SubmissionClassLoader must not
+     * keep that loader reachable.
+     */
+    public static void testOtherLoadersAreNotRetained() throws Exception {
+        Path dir = Files.createTempDirectory("kelas-classes");
+        try {
+            for (Map.Entry<String, byte[]> e : TestSubmission.compile(SHAPES).entrySet()) {
+                Files.write(dir.resolve(e.getKey() + ".class"), e.getValue());
+            }
+            WeakReference<ClassLoader> ref = indexInLoader(dir);
+            for (int i = 0; i < 50 && ref.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertTrue(ref.get() == null, "the loader was collected");
+        } finally {
+            TestSubmission.delete(dir);
+        }
+    }
+
+    private static WeakReference<ClassLoader> indexInLoader(Path dir) throws Exception {
+        URLClassLoader loader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, null);
+        assertEquals(4, TypeIndex.of(loader).getClasses().size());
+        loader.close();
+        return new WeakReference<>(loader);
+    }
+}
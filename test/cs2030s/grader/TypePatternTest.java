@@ -0,0 +1,88 @@
+package cs2030s.grader;
+
+import static cs2030s.grader.TestRunner.assertEquals;
+import static cs2030s.grader.TestRunner.assertThrows;
+import static cs2030s.grader.TestRunner.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of generic type patterns.
+ */
+public class TypePatternTest {
+
+    @SuppressWarnings("rawtypes")
+    static class Holder {
+        List<String> names;
+        Map<String, List<Integer>> index;
+        ArrayList<Integer> numbers;
+        List raw;
+        Map<String, Integer> byName;
+        Map<Integer, String> byId;
+        int count;
+        String[] words;
+    }
+
+    private static Type type(String field) throws NoSuchFieldException {
+        return Holder.class.getDeclaredField(field).getGenericType();
+    }
+
+    private static boolean matches(String pattern, String field) throws NoSuchFieldException {
+        return TypePattern.parse(pattern).matches(type(field));
+    }
+
+    private static boolean assignable(String pattern, String field) throws NoSuchFieldException {
+        return TypePattern.parse(pattern).isAssignableFrom(type(field));
+    }
+
+    public static void testMatches() throws Exception {
+        assertTrue(matches("List<String>", "names"), "List<String> names");
+        assertTrue(matches("List", "names"), "a bare name ignores type arguments");
+        assertTrue(matches("java.util.List<java.lang.String>", "names"), "qualified names");
+        assertTrue(!matches("List<Integer>", "names"), "type arguments must match");
+        assertTrue(matches("Map<String, List<Integer>>", "index"), "nested arguments");
+        assertTrue(matches("Map<String, *>", "index"), "* matches any argument");
+        assertTrue(!matches("List<String>", "numbers"), "matches compares the class as written");
+        assertTrue(matches("List<>", "raw") && !matches("List<>", "names"), "<> matches raw types only");
+        assertTrue(matches("int", "count"), "primitives");
+        assertTrue(matches("String[]", "words") && !matches("String", "words"), "arrays");
+    }
+
+    public static void testIsAssignableFrom() throws Exception {
+        assertTrue(assignable("Collection<? extends Number>", "numbers"), "ArrayList<Integer> as a collection of numbers");
+        assertTrue(assignable("Collection<String>", "names"), "List<String> as Collection<String>");
+        assertTrue(!assignable("Collection<Object>", "names"), "generics are invariant");
+        assertTrue(assignable("Collection<? super Integer>", "numbers"), "? super");
+        assertTrue(!assignable("Map<String, List<Integer>>", "names"), "unrelated classes");
+    }
+
+    public static void testParse() {
+        assertEquals(TypePattern.parse("Map<String,List<Case>>"), TypePattern.parse("Map< String, List<Case> >"));
+        assertTrue(!TypePattern.parse("Case").isGeneric(), "a bare name is not generic");
+        assertTrue(TypePattern.parse("Case[]").isGeneric(), "an array pattern is generic");
+        assertThrows(IllegalArgumentException.class, () -> TypePattern.parse("List<String"));
+        assertThrows(IllegalArgumentException.class, () -> TypePattern.parse("List<String>>"));
+    }
+
+    private static List<String> names(KelasFields fields) {
+        List<String> names = new ArrayList<>();
+        for (java.lang.reflect.Field f : fields.collect()) {
+            names.add(f.getName());
+        }
+        return names;
+    }
+
+    public static void testHaveType() {
+        Kelas holder = new Kelas(Holder.class);
+        // The legacy overload compares the first type argument only.
+        assertEquals(List.of("names"), names(holder.getFields().haveType(List.class, String.class)));
+        assertEquals(List.of("index", "byName"), names(holder.getFields().haveType(Map.class, String.class)));
+        assertEquals(List.of(), names(holder.getFields().haveType(List.class, Object.class)));
+        // A pattern compares every type argument.
+        assertEquals(List.of("byId"), names(holder.getFields().haveType(TypePattern.parse("Map<*, String>"))));
+        assertEquals(List.of("names", "raw"), names(holder.getFields().haveType(TypePattern.parse("List"))));
+    }
+}